@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.view.MenuItem;
+import android.view.View;
+
+import io.realm.Realm;
+import io.realm.RealmChangeListener;
+import io.realm.RealmConfiguration;
+import io.realm.RealmResults;
+import io.realm.Sort;
+import io.realm.realmtasks.data.Archive;
+import io.realm.realmtasks.list.ArchivedTaskAdapter;
+import io.realm.realmtasks.model.ArchivedTask;
+import io.realm.realmtasks.view.RecyclerViewWithEmptyViewSupport;
+
+/**
+ * Show the archived tasks of a given list.
+ */
+public class ArchivedTasksActivity extends AppCompatActivity {
+
+    public static final String EXTRA_LIST_ID = "extra.list_id";
+
+    private Realm realm;
+    private RecyclerViewWithEmptyViewSupport recyclerView;
+    private View loadingView;
+    private RealmResults<ArchivedTask> archivedTasks;
+    private String id;
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_common_list);
+        setTitle(R.string.title_archived);
+
+        recyclerView = findViewById(R.id.recycler_view);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        loadingView = findViewById(R.id.loading_view);
+        // The empty view is the hint to pull down to add, there is nothing to add here.
+        findViewById(R.id.empty_view).setVisibility(View.GONE);
+
+        final Intent intent = getIntent();
+        if (!intent.hasExtra(EXTRA_LIST_ID)) {
+            throw new IllegalArgumentException(EXTRA_LIST_ID + " required");
+        }
+        id = intent.getStringExtra(EXTRA_LIST_ID);
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        final RealmConfiguration configuration = Archive.getConfiguration();
+        if (configuration == null) {
+            finish();
+            return;
+        }
+        // A local Realm that is only opened here, the query itself runs in the background.
+        realm = Realm.getInstance(configuration);
+        loadingView.setVisibility(View.VISIBLE);
+        archivedTasks = realm.where(ArchivedTask.class)
+                .equalTo(ArchivedTask.FIELD_LIST_ID, id)
+                .findAllSortedAsync(ArchivedTask.FIELD_COMPLETED_AT, Sort.DESCENDING);
+        archivedTasks.addChangeListener(new RealmChangeListener<RealmResults<ArchivedTask>>() {
+            @Override
+            public void onChange(RealmResults<ArchivedTask> results) {
+                loadingView.setVisibility(View.GONE);
+            }
+        });
+        recyclerView.setAdapter(new ArchivedTaskAdapter(this, archivedTasks));
+    }
+
+    @Override
+    protected void onStop() {
+        recyclerView.setAdapter(null);
+        if (archivedTasks != null) {
+            archivedTasks.removeAllChangeListeners();
+            archivedTasks = null;
+        }
+        if (realm != null) {
+            realm.close();
+            realm = null;
+        }
+        super.onStop();
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == android.R.id.home) {
+            finish();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+}
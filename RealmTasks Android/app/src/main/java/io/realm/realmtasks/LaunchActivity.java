@@ -0,0 +1,56 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.os.Bundle;
+
+import io.realm.SyncUser;
+import io.realm.realmtasks.data.InitialData;
+
+/**
+ * Entry point of the app. Returning users go straight to their lists, without inflating the login form or
+ * initializing the Facebook and Google SDKs; only everybody else is sent to {@link SignInActivity}.
+ */
+public class LaunchActivity extends Activity {
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        final SyncUser user = SyncUser.currentUser();
+        if (user != null && user.isValid()) {
+            UserManager.setActiveUser(user);
+            startTaskLists(this);
+        } else {
+            startActivity(new Intent(this, SignInActivity.class));
+        }
+        finish();
+    }
+
+    /**
+     * Shows the default list of the active user on top of all lists.
+     */
+    static void startTaskLists(Activity activity) {
+        InitialData.createIfNeeded();
+
+        Intent listActivity = new Intent(activity, TaskListActivity.class);
+        Intent tasksActivity = new Intent(activity, TaskActivity.class);
+        tasksActivity.putExtra(TaskActivity.EXTRA_LIST_ID, RealmTasksApplication.DEFAULT_LIST_ID);
+        activity.startActivities(new Intent[] { listActivity, tasksActivity} );
+    }
+}
@@ -23,6 +23,10 @@ import com.facebook.FacebookSdk;
 import io.realm.Realm;
 import io.realm.log.LogLevel;
 import io.realm.log.RealmLog;
+import io.realm.realmtasks.data.SyncSettings;
+import io.realm.realmtasks.metrics.LogcatMetricsSink;
+import io.realm.realmtasks.metrics.Metrics;
+import io.realm.realmtasks.metrics.StartupMetrics;
 
 public class RealmTasksApplication extends Application {
 
@@ -34,6 +38,11 @@ public class RealmTasksApplication extends Application {
     @Override
     public void onCreate() {
         super.onCreate();
+        StartupMetrics.markStart();
+        if (BuildConfig.DEBUG) {
+            Metrics.setSink(new LogcatMetricsSink());
+        }
         Realm.init(this);
+        SyncSettings.init(this);
     }
 }
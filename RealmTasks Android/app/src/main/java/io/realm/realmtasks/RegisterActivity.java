@@ -58,6 +58,7 @@ public class RegisterActivity extends AppCompatActivity implements SyncUser.Call
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        FacebookAuth.initializeSdk(this);
         setContentView(R.layout.activity_register);
         usernameView = findViewById(R.id.username);
         passwordView = findViewById(R.id.password);
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.MenuItem;
+import android.widget.EditText;
+
+import java.util.Collections;
+import java.util.List;
+
+import io.realm.realmtasks.data.SearchIndex;
+import io.realm.realmtasks.list.SearchResultAdapter;
+
+/**
+ * Search all tasks and lists as you type.
+ */
+public class SearchActivity extends AppCompatActivity {
+
+    private EditText queryView;
+    private SearchResultAdapter adapter;
+
+    private final SearchIndex.Callback searchCallback = new SearchIndex.Callback() {
+        @Override
+        public void onResults(String query, List<SearchIndex.Result> results) {
+            // Results of a query the user has typed past are dropped.
+            if (query.equals(queryView.getText().toString())) {
+                adapter.setResults(results);
+            }
+        }
+    };
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_search);
+        setTitle(R.string.title_search);
+
+        adapter = new SearchResultAdapter(new SearchResultAdapter.OnResultClickListener() {
+            @Override
+            public void onResultClicked(SearchIndex.Result result) {
+                if (result.getListId() == null) {
+                    return;
+                }
+                final Intent intent = new Intent(SearchActivity.this, TaskActivity.class);
+                intent.putExtra(TaskActivity.EXTRA_LIST_ID, result.getListId());
+                if (result.getTaskId() != null) {
+                    intent.putExtra(TaskActivity.EXTRA_TASK_ID, result.getTaskId());
+                }
+                startActivity(intent);
+            }
+        });
+        final RecyclerView recyclerView = findViewById(R.id.search_results);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        recyclerView.setAdapter(adapter);
+
+        queryView = findViewById(R.id.search_query);
+        queryView.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                final String query = s.toString();
+                if (query.trim().isEmpty()) {
+                    adapter.setResults(Collections.<SearchIndex.Result>emptyList());
+                } else {
+                    SearchIndex.getInstance().search(query, searchCallback);
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        // Kept running afterwards, from then on it is only updated with what changes.
+        SearchIndex.getInstance().start();
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == android.R.id.home) {
+            finish();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+}
@@ -22,6 +22,7 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
 import android.text.TextUtils;
+import android.text.format.Formatter;
 import android.view.KeyEvent;
 import android.view.Menu;
 import android.view.MenuInflater;
@@ -43,29 +44,45 @@ import com.google.android.gms.common.SignInButton;
 
 import io.realm.SyncCredentials;
 import io.realm.ObjectServerError;
-import io.realm.Realm;
 import io.realm.SyncUser;
 import io.realm.realmtasks.auth.facebook.FacebookAuth;
 import io.realm.realmtasks.auth.google.GoogleAuth;
-import io.realm.realmtasks.model.TaskList;
-import io.realm.realmtasks.model.TaskListList;
+import io.realm.realmtasks.data.InitialDownload;
+import io.realm.realmtasks.metrics.StartupMetrics;
 
 import static io.realm.realmtasks.RealmTasksApplication.AUTH_URL;
 
 public class SignInActivity extends AppCompatActivity implements SyncUser.Callback<SyncUser> {
 
     public static final String ACTION_IGNORE_CURRENT_USER = "action.ignoreCurrentUser";
+    private static final String STATE_DOWNLOADING = "downloading";
 
     private AutoCompleteTextView usernameView;
     private EditText passwordView;
     private View progressView;
+    private TextView downloadProgressView;
     private View loginFormView;
     private FacebookAuth facebookAuth;
     private GoogleAuth googleAuth;
+    private InitialDownload initialDownload;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+
+        // Check if we already got a user, if yes, just continue automatically
+        if (savedInstanceState == null) {
+            if (!ACTION_IGNORE_CURRENT_USER.equals(getIntent().getAction())) {
+                final SyncUser user = SyncUser.currentUser();
+                if (user != null) {
+                    loginComplete(user);
+                    return;
+                }
+            }
+        }
+
+        // Only initialized here, so that returning users never pay for it.
+        FacebookAuth.initializeSdk(this);
         setContentView(R.layout.activity_sign_in);
 
         //noinspection ConstantConditions
@@ -94,16 +111,7 @@ public class SignInActivity extends AppCompatActivity implements SyncUser.Callba
 
         loginFormView = findViewById(R.id.sign_in_form);
         progressView = findViewById(R.id.sign_in_progress);
-
-        // Check if we already got a user, if yes, just continue automatically
-        if (savedInstanceState == null) {
-            if (!ACTION_IGNORE_CURRENT_USER.equals(getIntent().getAction())) {
-                final SyncUser user = SyncUser.currentUser();
-                if (user != null) {
-                    loginComplete(user);
-                }
-            }
-        }
+        downloadProgressView = findViewById(R.id.sign_in_download_progress);
 
         // Setup Facebook Authentication
         facebookAuth = new FacebookAuth((LoginButton) findViewById(R.id.login_button)) {
@@ -130,6 +138,19 @@ public class SignInActivity extends AppCompatActivity implements SyncUser.Callba
                 super.onError(s);
             }
         };
+
+        // The previous instance cancelled the initial download when it was destroyed, e.g. on rotation. The user is
+        // logged in already, so continue it instead of showing the login form again.
+        final SyncUser user = SyncUser.currentUser();
+        if (savedInstanceState != null && savedInstanceState.getBoolean(STATE_DOWNLOADING) && user != null) {
+            downloadInitialData(user);
+        }
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putBoolean(STATE_DOWNLOADING, initialDownload != null);
     }
 
     @Override
@@ -139,16 +160,49 @@ public class SignInActivity extends AppCompatActivity implements SyncUser.Callba
         facebookAuth.onActivityResult(requestCode, resultCode, data);
     }
 
+    @Override
+    protected void onDestroy() {
+        if (initialDownload != null) {
+            initialDownload.cancel();
+            initialDownload = null;
+        }
+        super.onDestroy();
+    }
+
     private void loginComplete(SyncUser user) {
         UserManager.setActiveUser(user);
+        LaunchActivity.startTaskLists(this);
+        finish();
+    }
 
-        createInitialDataIfNeeded();
+    private void downloadInitialData(SyncUser user) {
+        showProgress(true);
+        downloadProgressView.setText(R.string.download_progress_starting);
+        downloadProgressView.setVisibility(View.VISIBLE);
+        final InitialDownload.Listener listener = new InitialDownload.Listener() {
+            @Override
+            public void onProgress(long transferredBytes, long transferableBytes) {
+                downloadProgressView.setText(getString(R.string.download_progress,
+                        Formatter.formatShortFileSize(SignInActivity.this, transferredBytes),
+                        Formatter.formatShortFileSize(SignInActivity.this, transferableBytes)));
+            }
 
-        Intent listActivity = new Intent(this, TaskListActivity.class);
-        Intent tasksActivity = new Intent(this, TaskActivity.class);
-        tasksActivity.putExtra(TaskActivity.EXTRA_LIST_ID, RealmTasksApplication.DEFAULT_LIST_ID);
-        startActivities(new Intent[] { listActivity, tasksActivity} );
-        finish();
+            @Override
+            public void onComplete() {
+                initialDownload = null;
+                LaunchActivity.startTaskLists(SignInActivity.this);
+                finish();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                initialDownload = null;
+                showProgress(false);
+                Toast.makeText(SignInActivity.this, error.toString(), Toast.LENGTH_LONG).show();
+            }
+        };
+        initialDownload = new InitialDownload(UserManager.getInitialDownloadConfiguration(user), listener);
+        initialDownload.start();
     }
 
     @Override
@@ -209,6 +263,9 @@ public class SignInActivity extends AppCompatActivity implements SyncUser.Callba
             }
         });
 
+        if (!show) {
+            downloadProgressView.setVisibility(View.GONE);
+        }
         progressView.setVisibility(show ? View.VISIBLE : View.GONE);
         progressView.animate().setDuration(shortAnimTime).alpha(
                 show ? 1 : 0).setListener(new AnimatorListenerAdapter() {
@@ -221,8 +278,15 @@ public class SignInActivity extends AppCompatActivity implements SyncUser.Callba
 
     @Override
     public void onSuccess(SyncUser user) {
-        showProgress(false);
-        loginComplete(user);
+        StartupMetrics.markStart();
+        UserManager.setActiveUser(user);
+        if (InitialDownload.isNeeded()) {
+            // First login on this device: show the lists only once the user's data has been downloaded.
+            downloadInitialData(user);
+        } else {
+            LaunchActivity.startTaskLists(this);
+            finish();
+        }
     }
 
     @Override
@@ -241,29 +305,5 @@ public class SignInActivity extends AppCompatActivity implements SyncUser.Callba
         }
         Toast.makeText(SignInActivity.this, errorMsg, Toast.LENGTH_LONG).show();
     }
-
-    private static void createInitialDataIfNeeded() {
-        final Realm realm = Realm.getDefaultInstance();
-        //noinspection TryFinallyCanBeTryWithResources
-        try {
-            if (realm.where(TaskListList.class).count() != 0) {
-                return;
-            }
-            realm.executeTransaction(new Realm.Transaction() {
-                @Override
-                public void execute(Realm realm) {
-                    if (realm.where(TaskListList.class).count() == 0) {
-                        final TaskListList taskListList = realm.createObject(TaskListList.class, 0);
-                        final TaskList taskList = new TaskList();
-                        taskList.setId(RealmTasksApplication.DEFAULT_LIST_ID);
-                        taskList.setText(RealmTasksApplication.DEFAULT_LIST_NAME);
-                        taskListList.getItems().add(taskList);
-                    }
-                }
-            });
-        } finally {
-            realm.close();
-        }
-    }
 }
 
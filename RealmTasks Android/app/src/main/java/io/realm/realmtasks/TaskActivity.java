@@ -23,12 +23,20 @@ import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.view.View;
 
 import io.realm.Realm;
+import io.realm.RealmAsyncTask;
 import io.realm.RealmChangeListener;
+import io.realm.RealmResults;
+import io.realm.realmtasks.data.Archive;
 import io.realm.realmtasks.list.ItemViewHolder;
 import io.realm.realmtasks.list.TaskAdapter;
 import io.realm.realmtasks.list.TouchHelper;
+import io.realm.realmtasks.metrics.StartupMetrics;
+import io.realm.realmtasks.metrics.SyncMonitor;
+import io.realm.realmtasks.metrics.TransactionMetrics;
+import io.realm.realmtasks.model.Task;
 import io.realm.realmtasks.model.TaskList;
 import io.realm.realmtasks.view.RecyclerViewWithEmptyViewSupport;
 
@@ -38,13 +46,19 @@ import io.realm.realmtasks.view.RecyclerViewWithEmptyViewSupport;
 public class TaskActivity extends AppCompatActivity {
 
     public static final String EXTRA_LIST_ID = "extra.list_id";
+    public static final String EXTRA_TASK_ID = "extra.task_id";
 
     private Realm realm;
+    private RealmAsyncTask realmTask;
     private RecyclerViewWithEmptyViewSupport recyclerView;
+    private View emptyView;
+    private View loadingView;
     private TaskAdapter adapter;
     private TouchHelper touchHelper;
     private String id;
-    private TaskList taskList;
+    // Task to scroll to once the list is shown, or null.
+    private String scrollToTaskId;
+    private RealmResults<TaskList> taskLists;
     private boolean logoutAfterClose;
 
     @Override
@@ -54,13 +68,16 @@ public class TaskActivity extends AppCompatActivity {
 
         recyclerView = findViewById(R.id.recycler_view);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
-        recyclerView.setEmptyView(findViewById(R.id.empty_view));
+        emptyView = findViewById(R.id.empty_view);
+        loadingView = findViewById(R.id.loading_view);
+        recyclerView.setEmptyView(emptyView);
 
         final Intent intent = getIntent();
         if (!intent.hasExtra(EXTRA_LIST_ID)) {
             throw new IllegalArgumentException(EXTRA_LIST_ID + " required");
         }
         id = intent.getStringExtra(EXTRA_LIST_ID);
+        scrollToTaskId = intent.getStringExtra(EXTRA_TASK_ID);
     }
 
     @Override
@@ -70,39 +87,89 @@ public class TaskActivity extends AppCompatActivity {
             touchHelper.attachToRecyclerView(null);
         }
         adapter = null;
-        realm = Realm.getDefaultInstance();
-        taskList = realm.where(TaskList.class).equalTo(TaskList.FIELD_ID, id).findFirstAsync();
-        taskList.addChangeListener(new RealmChangeListener<TaskList>() {
+        setTitle("Loading");
+        showLoading(true);
+        StartupMetrics.onFirstFrame(this);
+        // Opening a synced Realm for the first time can take a while, don't block the UI thread with it.
+        realmTask = Realm.getInstanceAsync(Realm.getDefaultConfiguration(), new Realm.Callback() {
             @Override
-            public void onChange(TaskList taskList) {
-                updateList(taskList);
+            public void onSuccess(Realm realm) {
+                realmTask = null;
+                TaskActivity.this.realm = realm;
+                SyncMonitor.track(realm);
+                // A query rather than findFirstAsync(), so that the list still shows up if it is created later.
+                taskLists = realm.where(TaskList.class)
+                        .equalTo(TaskList.FIELD_ID, id)
+                        .equalTo(TaskList.FIELD_DELETED, false)
+                        .findAllAsync();
+                taskLists.addChangeListener(new RealmChangeListener<RealmResults<TaskList>>() {
+                    @Override
+                    public void onChange(RealmResults<TaskList> results) {
+                        updateList(results);
+                    }
+                });
             }
         });
-        setTitle("Loading");
     }
 
-    private void updateList(TaskList taskList) {
-        if (taskList.isValid()) {
+    private void showLoading(boolean loading) {
+        loadingView.setVisibility(loading ? View.VISIBLE : View.GONE);
+        if (loading) {
+            // Shown again by the RecyclerView once it knows that the list is empty.
+            emptyView.setVisibility(View.GONE);
+        }
+    }
+
+    private void updateList(RealmResults<TaskList> results) {
+        if (!results.isEmpty()) {
+            final TaskList taskList = results.first();
             setTitle(taskList.getText());
             if (adapter == null) {
-                adapter = new TaskAdapter(TaskActivity.this, taskList.getItems());
+                adapter = new TaskAdapter(TaskActivity.this, taskList);
                 touchHelper = new TouchHelper(new Callback(), adapter);
                 touchHelper.attachToRecyclerView(recyclerView);
+                showLoading(false);
+                StartupMetrics.onInteractive();
+                scrollToTask(taskList);
             }
-        } else {
+        } else if (adapter != null || !RealmTasksApplication.DEFAULT_LIST_ID.equals(id)) {
+            // The default list might not have been created yet, any other list must have been deleted.
+            showLoading(false);
             setTitle(getString(R.string.title_deleted));
         }
     }
 
+    private void scrollToTask(TaskList taskList) {
+        if (scrollToTaskId == null) {
+            return;
+        }
+        final Task task = taskList.getItems().where().equalTo(Task.FIELD_ID, scrollToTaskId).findFirst();
+        if (task != null) {
+            recyclerView.scrollToPosition(taskList.getItems().indexOf(task));
+        }
+        scrollToTaskId = null;
+    }
+
     @Override
     protected void onStop() {
+        if (realmTask != null) {
+            realmTask.cancel();
+            realmTask = null;
+        }
+        if (taskLists != null) {
+            taskLists.removeAllChangeListeners();
+            taskLists = null;
+        }
         if (adapter != null) {
+            adapter.flushPendingEdits();
             touchHelper.attachToRecyclerView(null);
             adapter = null;
         }
-        realm.removeAllChangeListeners();
-        realm.close();
-        realm = null;
+        if (realm != null) {
+            realm.removeAllChangeListeners();
+            realm.close();
+            realm = null;
+        }
         if (logoutAfterClose) {
             /*
              * We need call logout() here since onCreate() of the next Activity is already
@@ -118,6 +185,9 @@ public class TaskActivity extends AppCompatActivity {
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.menu_tasks, menu);
+        // Only once something has been archived, which the user has to turn on first.
+        menu.findItem(R.id.action_show_archived).setVisible(Archive.exists());
+        menu.findItem(R.id.action_export_metrics).setVisible(BuildConfig.DEBUG);
         return true;
     }
 
@@ -142,6 +212,23 @@ public class TaskActivity extends AppCompatActivity {
                 logoutAfterClose = true;
                 return true;
 
+            case R.id.action_show_archived:
+                final Intent archived = new Intent(TaskActivity.this, ArchivedTasksActivity.class);
+                archived.putExtra(ArchivedTasksActivity.EXTRA_LIST_ID, id);
+                startActivity(archived);
+                return true;
+
+            case R.id.action_search:
+                startActivity(new Intent(TaskActivity.this, SearchActivity.class));
+                return true;
+
+            case R.id.action_export_metrics:
+                final Intent share = TransactionMetrics.createShareIntent();
+                if (share != null) {
+                    startActivity(Intent.createChooser(share, item.getTitle()));
+                }
+                return true;
+
             default:
                 return super.onOptionsItemSelected(item);
         }
@@ -153,7 +240,12 @@ public class TaskActivity extends AppCompatActivity {
         public void onMoved(RecyclerView recyclerView, ItemViewHolder from, ItemViewHolder to) {
             final int fromPosition = from.getAdapterPosition();
             final int toPosition = to.getAdapterPosition();
-            adapter.onItemMoved(fromPosition, toPosition);
+            adapter.onItemDragged(fromPosition, toPosition);
+        }
+
+        @Override
+        public void onDropped() {
+            adapter.onItemDropped();
         }
 
         @Override
@@ -16,24 +16,34 @@
 
 package io.realm.realmtasks;
 
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.os.Bundle;
+import android.support.v7.app.ActionBar;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.view.Menu;
 import android.view.MenuItem;
-
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Set;
+import android.view.View;
 
 import io.realm.Realm;
+import io.realm.RealmAsyncTask;
 import io.realm.RealmChangeListener;
 import io.realm.RealmResults;
+import io.realm.realmtasks.data.TaskCounters;
+import io.realm.realmtasks.data.Archive;
+import io.realm.realmtasks.data.DuplicateLists;
+import io.realm.realmtasks.data.ListDeletion;
+import io.realm.realmtasks.data.SyncSettings;
 import io.realm.realmtasks.list.ItemViewHolder;
+import io.realm.realmtasks.list.RowPool;
 import io.realm.realmtasks.list.TaskListAdapter;
 import io.realm.realmtasks.list.TouchHelper;
+import io.realm.realmtasks.metrics.StartupMetrics;
+import io.realm.realmtasks.metrics.SyncMonitor;
+import io.realm.realmtasks.metrics.TransactionMetrics;
 import io.realm.realmtasks.model.TaskList;
 import io.realm.realmtasks.model.TaskListList;
 import io.realm.realmtasks.view.RecyclerViewWithEmptyViewSupport;
@@ -44,11 +54,24 @@ import io.realm.realmtasks.view.RecyclerViewWithEmptyViewSupport;
 public class TaskListActivity extends AppCompatActivity {
 
     private Realm realm;
+    private RealmAsyncTask realmTask;
     private RecyclerViewWithEmptyViewSupport recyclerView;
+    private View emptyView;
+    private View loadingView;
     private TaskListAdapter adapter;
     private TouchHelper touchHelper;
     private RealmResults<TaskListList> list;
+    private DuplicateLists duplicateLists;
     private boolean logoutAfterClose;
+    private final ListDeletion.ProgressListener deletionProgressListener = new ListDeletion.ProgressListener() {
+        @Override
+        public void onProgress(long remaining) {
+            final ActionBar actionBar = getSupportActionBar();
+            if (actionBar != null) {
+                actionBar.setSubtitle(remaining > 0 ? getString(R.string.deleting_tasks, remaining) : null);
+            }
+        }
+    };
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -56,7 +79,9 @@ public class TaskListActivity extends AppCompatActivity {
         setContentView(R.layout.activity_common_list);
         recyclerView = findViewById(R.id.recycler_view);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
-        recyclerView.setEmptyView(findViewById(R.id.empty_view));
+        emptyView = findViewById(R.id.empty_view);
+        loadingView = findViewById(R.id.loading_view);
+        recyclerView.setEmptyView(emptyView);
     }
 
     @Override
@@ -66,54 +91,95 @@ public class TaskListActivity extends AppCompatActivity {
             touchHelper.attachToRecyclerView(null);
         }
         adapter = null;
-        realm = Realm.getDefaultInstance();
-        list = realm.where(TaskListList.class).findAll();
-        list.addChangeListener(new RealmChangeListener<RealmResults<TaskListList>>() {
+        showLoading(true);
+        StartupMetrics.onFirstFrame(this);
+        // Opening a synced Realm for the first time can take a while, don't block the UI thread with it.
+        realmTask = Realm.getInstanceAsync(Realm.getDefaultConfiguration(), new Realm.Callback() {
             @Override
-            public void onChange(RealmResults<TaskListList> results) {
-                updateList(results);
+            public void onSuccess(Realm realm) {
+                realmTask = null;
+                TaskListActivity.this.realm = realm;
+                SyncMonitor.track(realm);
+                TaskCounters.start(realm);
+                ListDeletion.setProgressListener(deletionProgressListener);
+                ListDeletion.resume();
+                Archive.archiveOld();
+                list = realm.where(TaskListList.class).findAllAsync();
+                list.addChangeListener(new RealmChangeListener<RealmResults<TaskListList>>() {
+                    @Override
+                    public void onChange(RealmResults<TaskListList> results) {
+                        updateList(results);
+                    }
+                });
             }
         });
-        updateList(list);
     }
 
-    private void updateList(RealmResults<TaskListList> results) {
+    private void confirmArchiving(final MenuItem item) {
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.title_archive_old)
+                .setMessage(getString(R.string.archive_confirmation, Archive.ARCHIVE_AFTER_DAYS))
+                .setNegativeButton(android.R.string.cancel, null)
+                .setPositiveButton(R.string.action_archive, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        SyncSettings.setArchiveEnabled(true);
+                        item.setChecked(true);
+                        Archive.archiveOld();
+                    }
+                })
+                .show();
+    }
 
-        if (results.size() > 0 && adapter == null) {
+    private void showLoading(boolean loading) {
+        loadingView.setVisibility(loading ? View.VISIBLE : View.GONE);
+        if (loading) {
+            // Shown again by the RecyclerView once it knows that the list is empty.
+            emptyView.setVisibility(View.GONE);
+        }
+    }
 
-            // The default list is being added on all devices, so according to the merge rules the default list might
-            // be added multiple times. This is just a temporary fix. Proper ordered sets are being tracked here:
-            // https://github.com/realm/realm-core/issues/1206
-            realm.beginTransaction();
-            Set<String> seen = new HashSet<>();
-            Iterator<TaskList> it = results.first().getItems().iterator();
-            while (it.hasNext()) {
-                TaskList list = it.next();
-                String id = list.getId();
-                if (seen.contains(id)) {
-                    it.remove();
-                }
-                seen.add(id);
-            }
-            realm.commitTransaction();
+    private void updateList(RealmResults<TaskListList> results) {
+        if (results.size() > 0 && adapter == null) {
+            duplicateLists = new DuplicateLists(results.first().getItems());
+            duplicateLists.start();
 
             // Create Adapter
             adapter = new TaskListAdapter(TaskListActivity.this, results.first().getItems());
             touchHelper = new TouchHelper(new Callback(), adapter);
             touchHelper.attachToRecyclerView(recyclerView);
+            showLoading(false);
+            StartupMetrics.onInteractive();
+            RowPool.prewarm(recyclerView);
         }
     }
 
     @Override
     protected void onStop() {
-        list.removeAllChangeListeners();
+        if (realmTask != null) {
+            realmTask.cancel();
+            realmTask = null;
+        }
+        if (list != null) {
+            list.removeAllChangeListeners();
+            list = null;
+        }
+        ListDeletion.setProgressListener(null);
+        TaskCounters.stop();
+        if (duplicateLists != null) {
+            duplicateLists.stop();
+            duplicateLists = null;
+        }
         if (adapter != null) {
+            adapter.flushPendingEdits();
             touchHelper.attachToRecyclerView(null);
             adapter = null;
         }
-        realm.removeAllChangeListeners();
-        realm.close();
-        realm = null;
+        if (realm != null) {
+            realm.removeAllChangeListeners();
+            realm.close();
+            realm = null;
+        }
         if (logoutAfterClose) {
             /*
              * We need call logout() here since onCreate() of the next Activity is already
@@ -128,6 +194,8 @@ public class TaskListActivity extends AppCompatActivity {
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.menu_tasks, menu);
+        menu.findItem(R.id.action_archive_old).setVisible(true).setChecked(SyncSettings.isArchiveEnabled());
+        menu.findItem(R.id.action_export_metrics).setVisible(BuildConfig.DEBUG);
         return true;
     }
 
@@ -148,6 +216,27 @@ public class TaskListActivity extends AppCompatActivity {
                 logoutAfterClose = true;
                 return true;
 
+            case R.id.action_search:
+                startActivity(new Intent(TaskListActivity.this, SearchActivity.class));
+                return true;
+
+            case R.id.action_archive_old:
+                if (item.isChecked()) {
+                    // Already archived tasks stay in the archive.
+                    SyncSettings.setArchiveEnabled(false);
+                    item.setChecked(false);
+                } else {
+                    confirmArchiving(item);
+                }
+                return true;
+
+            case R.id.action_export_metrics:
+                final Intent share = TransactionMetrics.createShareIntent();
+                if (share != null) {
+                    startActivity(Intent.createChooser(share, item.getTitle()));
+                }
+                return true;
+
             default:
                 return super.onOptionsItemSelected(item);
         }
@@ -159,7 +248,12 @@ public class TaskListActivity extends AppCompatActivity {
         public void onMoved(RecyclerView recyclerView, ItemViewHolder from, ItemViewHolder to) {
             final int fromPosition = from.getAdapterPosition();
             final int toPosition = to.getAdapterPosition();
-            adapter.onItemMoved(fromPosition, toPosition);
+            adapter.onItemDragged(fromPosition, toPosition);
+        }
+
+        @Override
+        public void onDropped() {
+            adapter.onItemDropped();
         }
 
         @Override
@@ -182,6 +276,9 @@ public class TaskListActivity extends AppCompatActivity {
         public boolean onClicked(ItemViewHolder viewHolder) {
             final int position = viewHolder.getAdapterPosition();
             final TaskList taskList = adapter.getItem(position);
+            if (taskList == null) {
+                return false;
+            }
             final String id = taskList.getId();
             final Intent intent = new Intent(TaskListActivity.this, TaskActivity.class);
             intent.putExtra(TaskActivity.EXTRA_LIST_ID, id);
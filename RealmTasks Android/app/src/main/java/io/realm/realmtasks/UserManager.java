@@ -16,11 +16,17 @@
 
 package io.realm.realmtasks;
 
+import com.facebook.FacebookSdk;
 import com.facebook.login.LoginManager;
 
 import io.realm.Realm;
 import io.realm.SyncConfiguration;
 import io.realm.SyncUser;
+import io.realm.realmtasks.data.Archive;
+import io.realm.realmtasks.data.SearchIndex;
+import io.realm.realmtasks.metrics.InitialSyncMetrics;
+import io.realm.realmtasks.metrics.SyncMonitor;
+import io.realm.realmtasks.model.TasksModule;
 
 public class UserManager {
     // Supported authentication mode
@@ -42,7 +48,9 @@ public class UserManager {
                 break;
             }
             case FACEBOOK: {
-                LoginManager.getInstance().logOut();
+                if (FacebookSdk.isInitialized()) {
+                    LoginManager.getInstance().logOut();
+                }
                 break;
             }
             case GOOGLE: {
@@ -50,12 +58,33 @@ public class UserManager {
                 break;
             }
         }
+        SearchIndex.getInstance().stop();
+        SyncMonitor.stop();
         SyncUser.currentUser().logout();
     }
 
     // Configure Realm for the current active user
     public static void setActiveUser(SyncUser user) {
-        SyncConfiguration defaultConfig = new SyncConfiguration.Builder(user, RealmTasksApplication.REALM_URL).build();
-        Realm.setDefaultConfiguration(defaultConfig);
+        Realm.setDefaultConfiguration(createConfiguration(user).build());
+        Archive.setUser(user);
+        InitialSyncMetrics.markStart();
+    }
+
+    /**
+     * Returns a configuration of the user's Realm that only opens once the user's data has been downloaded, so that
+     * the default list isn't created again next to the copy that is already on the server. Only meant for opening the
+     * Realm the first time on this device: the default configuration doesn't wait, so that the background threads
+     * don't block while offline, and the two can't be open at the same time.
+     */
+    public static SyncConfiguration getInitialDownloadConfiguration(SyncUser user) {
+        return createConfiguration(user)
+                .waitForInitialRemoteData()
+                .build();
+    }
+
+    private static SyncConfiguration.Builder createConfiguration(SyncUser user) {
+        return new SyncConfiguration.Builder(user, RealmTasksApplication.REALM_URL)
+                .modules(new TasksModule())
+                .errorHandler(SyncMonitor.ERROR_HANDLER);
     }
 }
@@ -16,12 +16,14 @@
 
 package io.realm.realmtasks.auth.facebook;
 
+import android.content.Context;
 import android.content.Intent;
 import android.support.v4.app.FragmentActivity;
 
 import com.facebook.CallbackManager;
 import com.facebook.FacebookCallback;
 import com.facebook.FacebookException;
+import com.facebook.FacebookSdk;
 import com.facebook.login.LoginResult;
 import com.facebook.login.widget.LoginButton;
 
@@ -33,6 +35,17 @@ public abstract class FacebookAuth {
     private final LoginButton loginButton;
     private final CallbackManager callbackManager;
 
+    /**
+     * Initializes the Facebook SDK. Its automatic initialization at process start is disabled in the manifest, so
+     * this must be called before a {@link LoginButton} is inflated.
+     */
+    @SuppressWarnings("deprecation")
+    public static void initializeSdk(Context context) {
+        if (!FacebookSdk.isInitialized()) {
+            FacebookSdk.sdkInitialize(context.getApplicationContext());
+        }
+    }
+
     public FacebookAuth(final LoginButton loginBtn) {
         callbackManager = CallbackManager.Factory.create();
         this.loginButton = loginBtn;
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.data;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import io.realm.Realm;
+import io.realm.RealmConfiguration;
+import io.realm.RealmResults;
+import io.realm.SyncUser;
+import io.realm.realmtasks.model.ArchiveModule;
+import io.realm.realmtasks.model.ArchivedTask;
+import io.realm.realmtasks.model.Task;
+import io.realm.realmtasks.model.TaskList;
+
+/**
+ * Moves tasks that were completed a while ago from the synced Realm to a local archive Realm, so the lists in the
+ * synced Realm don't keep growing with the user's history. Archived tasks disappear from the user's other devices and
+ * only exist on this one, so this only happens once the user has turned it on, see
+ * {@link SyncSettings#isArchiveEnabled()}.
+ *
+ * The archive is a separate file per user with only {@link ArchiveModule} in it, and it isn't synced. Tasks are moved
+ * {@link #CHUNK_SIZE} at a time on the {@link WriteQueue}, each chunk being a separate job. A chunk is written to the
+ * archive before it is deleted from the synced Realm; if the process dies in between, it is archived again and the
+ * copies are replaced by their primary key.
+ */
+public class Archive {
+
+    /**
+     * The number of days after which completed tasks are archived.
+     */
+    public static final int ARCHIVE_AFTER_DAYS = 90;
+
+    private static final int CHUNK_SIZE = 500;
+    private static final long DAY_IN_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private static volatile RealmConfiguration configuration;
+    // Set on the main thread, reset by the chunks on the WriteQueue when archiving is turned off during a run.
+    private static volatile boolean started;
+
+    private Archive() {
+    }
+
+    /**
+     * Sets up the archive of the user that is logged in.
+     */
+    public static void setUser(SyncUser user) {
+        configuration = new RealmConfiguration.Builder()
+                .name("archive-" + user.getIdentity() + ".realm")
+                .modules(new ArchiveModule())
+                .build();
+        // Archive the new user's tasks too, a run for the previous user stops by itself.
+        started = false;
+    }
+
+    /**
+     * Returns the configuration of the archive Realm, or null if no user has logged in yet.
+     */
+    public static RealmConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Returns whether anything has been archived for the user that is logged in.
+     */
+    public static boolean exists() {
+        return configuration != null && new File(configuration.getPath()).exists();
+    }
+
+    /**
+     * Archives the tasks that were completed more than {@link #ARCHIVE_AFTER_DAYS} days ago, if the user turned
+     * archiving on. Does nothing after the first call that started archiving for the logged in user, unless archiving
+     * was turned off in the meantime.
+     */
+    public static void archiveOld() {
+        if (started || configuration == null || !SyncSettings.isArchiveEnabled()) {
+            return;
+        }
+        started = true;
+        final Date cutoff = new Date(System.currentTimeMillis() - ARCHIVE_AFTER_DAYS * DAY_IN_MILLIS);
+        WriteQueue.getInstance().enqueue(new ArchiveChunk(configuration, cutoff));
+    }
+
+    private static RealmResults<Task> findOld(TaskList taskList, Date cutoff) {
+        // Only tasks completed on this device have a completion date, the others stay where they are.
+        return taskList.getItems().where()
+                .equalTo(Task.FIELD_COMPLETED, true)
+                .lessThan(Task.FIELD_COMPLETED_AT, cutoff)
+                .isNotNull(Task.FIELD_ID)
+                .findAll();
+    }
+
+    private static class ArchiveChunk implements WriteQueue.Job {
+
+        private final RealmConfiguration archiveConfiguration;
+        private final Date cutoff;
+
+        ArchiveChunk(RealmConfiguration archiveConfiguration, Date cutoff) {
+            this.archiveConfiguration = archiveConfiguration;
+            this.cutoff = cutoff;
+        }
+
+        @Override
+        public void run(Realm realm) {
+            if (!SyncSettings.isArchiveEnabled()) {
+                // Turned off during the run, turning it on again starts a new one.
+                if (archiveConfiguration == configuration) {
+                    started = false;
+                }
+                return;
+            }
+            if (archiveConfiguration != configuration) {
+                // Another user has logged in, the WriteQueue's Realm is theirs now.
+                return;
+            }
+            String listId = null;
+            final List<ArchivedTask> chunk = new ArrayList<>();
+            for (TaskList taskList : realm.where(TaskList.class).equalTo(TaskList.FIELD_DELETED, false).findAll()) {
+                final RealmResults<Task> old = findOld(taskList, cutoff);
+                if (old.isEmpty()) {
+                    continue;
+                }
+                listId = taskList.getId();
+                for (int i = 0; i < CHUNK_SIZE && i < old.size(); i++) {
+                    chunk.add(toArchived(listId, old.get(i)));
+                }
+                break;
+            }
+            if (chunk.isEmpty()) {
+                return;
+            }
+
+            final Realm archive = Realm.getInstance(archiveConfiguration);
+            try {
+                archive.executeTransaction(new Realm.Transaction() {
+                    @Override
+                    public void execute(Realm realm) {
+                        realm.copyToRealmOrUpdate(chunk);
+                    }
+                });
+            } finally {
+                archive.close();
+            }
+
+            final String[] ids = new String[chunk.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = chunk.get(i).getId();
+            }
+            final String archivedListId = listId;
+            realm.executeTransaction(new Realm.Transaction() {
+                @Override
+                public void execute(Realm realm) {
+                    final TaskList taskList = realm.where(TaskList.class)
+                            .equalTo(TaskList.FIELD_ID, archivedListId)
+                            .findFirst();
+                    if (taskList == null) {
+                        return;
+                    }
+                    final RealmResults<Task> archived = findOld(taskList, cutoff).where()
+                            .in(Task.FIELD_ID, ids)
+                            .findAll();
+                    TaskCounters.adjust(taskList, 0, -archived.size());
+                    archived.deleteAllFromRealm();
+                }
+            });
+            WriteQueue.getInstance().enqueue(this);
+        }
+
+        private static ArchivedTask toArchived(String listId, Task task) {
+            final ArchivedTask archivedTask = new ArchivedTask();
+            archivedTask.setId(task.getId());
+            archivedTask.setListId(listId);
+            archivedTask.setText(task.getText());
+            archivedTask.setDate(task.getDate());
+            archivedTask.setCompletedAt(task.getCompletedAt());
+            return archivedTask;
+        }
+    }
+}
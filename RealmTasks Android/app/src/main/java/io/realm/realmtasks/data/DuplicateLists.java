@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.data;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import io.realm.OrderedCollectionChangeSet;
+import io.realm.OrderedRealmCollectionChangeListener;
+import io.realm.Realm;
+import io.realm.RealmList;
+import io.realm.realmtasks.model.TaskList;
+import io.realm.realmtasks.model.TaskListList;
+
+/**
+ * Removes duplicate entries from {@link TaskListList#getItems()}.
+ *
+ * The default list is added on all devices, so according to the merge rules it might end up in the list several
+ * times. This is just a temporary fix. Proper ordered sets are being tracked here:
+ * https://github.com/realm/realm-core/issues/1206
+ *
+ * {@link TaskList} has a primary key, so the duplicates are links to the same object and their tasks have already
+ * been merged by sync; removing the extra links doesn't lose anything. The lists that were inserted are checked on
+ * the {@link WriteQueue} whenever the items change, and everything is checked once per process.
+ */
+public class DuplicateLists {
+
+    private static boolean fullPassDone;
+
+    private final RealmList<TaskList> items;
+    private final OrderedRealmCollectionChangeListener<RealmList<TaskList>> changeListener =
+            new OrderedRealmCollectionChangeListener<RealmList<TaskList>>() {
+                @Override
+                public void onChange(RealmList<TaskList> list, OrderedCollectionChangeSet changeSet) {
+                    if (changeSet == null) {
+                        return;
+                    }
+                    final int[] insertions = changeSet.getInsertions();
+                    if (insertions.length == 0) {
+                        return;
+                    }
+                    final List<String> ids = new ArrayList<>(insertions.length);
+                    for (int index : insertions) {
+                        ids.add(list.get(index).getId());
+                    }
+                    WriteQueue.getInstance().enqueue(new Compaction(ids));
+                }
+            };
+
+    public DuplicateLists(RealmList<TaskList> items) {
+        this.items = items;
+    }
+
+    /**
+     * Starts watching the items. Must be called from the thread of the items.
+     */
+    public void start() {
+        items.addChangeListener(changeListener);
+        if (!fullPassDone) {
+            fullPassDone = true;
+            WriteQueue.getInstance().enqueue(new Compaction(null));
+        }
+    }
+
+    public void stop() {
+        if (items.isValid()) {
+            items.removeChangeListener(changeListener);
+        }
+    }
+
+    private static class Compaction implements WriteQueue.Job {
+
+        // The ids to check, or null to check all.
+        private final Set<String> candidates;
+
+        Compaction(List<String> candidates) {
+            this.candidates = candidates != null ? new HashSet<>(candidates) : null;
+        }
+
+        @Override
+        public void run(Realm realm) {
+            final TaskListList taskListList = realm.where(TaskListList.class).findFirst();
+            if (taskListList == null || findDuplicates(taskListList.getItems()).isEmpty()) {
+                return;
+            }
+            realm.executeTransaction(new Realm.Transaction() {
+                @Override
+                public void execute(Realm realm) {
+                    final TaskListList taskListList = realm.where(TaskListList.class).findFirst();
+                    if (taskListList == null) {
+                        return;
+                    }
+                    final Set<String> duplicates = findDuplicates(taskListList.getItems());
+                    final Set<String> seen = new HashSet<>();
+                    final Iterator<TaskList> it = taskListList.getItems().iterator();
+                    while (it.hasNext()) {
+                        final String id = it.next().getId();
+                        if (duplicates.contains(id) && !seen.add(id)) {
+                            it.remove();
+                        }
+                    }
+                }
+            });
+        }
+
+        private Set<String> findDuplicates(RealmList<TaskList> items) {
+            final Set<String> seen = new HashSet<>();
+            final Set<String> duplicates = new HashSet<>();
+            for (TaskList taskList : items) {
+                final String id = taskList.getId();
+                if (candidates != null && !candidates.contains(id)) {
+                    continue;
+                }
+                if (!seen.add(id)) {
+                    duplicates.add(id);
+                }
+            }
+            return duplicates;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.data;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.realm.Realm;
+import io.realm.realmtasks.metrics.TransactionMetrics;
+
+/**
+ * Folds successive edits of the same object into one write. A new edit replaces any pending edit with the same key,
+ * so the last value always wins. Pending edits are committed together, in a single transaction on the
+ * {@link WriteQueue}, once no edit has arrived for {@link #IDLE_WINDOW_MS} or when {@link #flush()} is called.
+ *
+ * Must only be used from the main thread.
+ */
+public class EditCoalescer {
+
+    private static final long IDLE_WINDOW_MS = 500;
+
+    private final Map<String, Realm.Transaction> pending = new LinkedHashMap<>();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final WriteQueue.Callback callback;
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    public EditCoalescer(WriteQueue.Callback callback) {
+        this.callback = callback;
+    }
+
+    public void submit(String key, Realm.Transaction edit) {
+        pending.remove(key);
+        pending.put(key, edit);
+        handler.removeCallbacks(flushRunnable);
+        handler.postDelayed(flushRunnable, IDLE_WINDOW_MS);
+    }
+
+    public void flush() {
+        handler.removeCallbacks(flushRunnable);
+        if (pending.isEmpty()) {
+            return;
+        }
+        final List<Realm.Transaction> edits = new ArrayList<>(pending.values());
+        pending.clear();
+        WriteQueue.getInstance().enqueue(TransactionMetrics.Operation.EDIT, new Realm.Transaction() {
+            @Override
+            public void execute(Realm realm) {
+                for (Realm.Transaction edit : edits) {
+                    edit.execute(realm);
+                }
+            }
+        }, callback);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.data;
+
+import io.realm.Realm;
+import io.realm.realmtasks.RealmTasksApplication;
+import io.realm.realmtasks.model.TaskList;
+import io.realm.realmtasks.model.TaskListList;
+
+/**
+ * Creates the default list for new users. Runs on the {@link WriteQueue}, so signing in never waits for the Realm
+ * to be opened or written; the list screens show up as soon as the data is there.
+ */
+public class InitialData {
+
+    private static final WriteQueue.Job CREATE_IF_NEEDED = new WriteQueue.Job() {
+        @Override
+        public void run(Realm realm) {
+            if (realm.where(TaskListList.class).count() != 0) {
+                return;
+            }
+            realm.executeTransaction(new Realm.Transaction() {
+                @Override
+                public void execute(Realm realm) {
+                    if (realm.where(TaskListList.class).count() == 0) {
+                        final TaskListList taskListList = realm.createObject(TaskListList.class, 0);
+                        final TaskList taskList = new TaskList();
+                        taskList.setId(RealmTasksApplication.DEFAULT_LIST_ID);
+                        taskList.setText(RealmTasksApplication.DEFAULT_LIST_NAME);
+                        taskListList.getItems().add(taskList);
+                    }
+                }
+            });
+        }
+    };
+
+    private InitialData() {
+    }
+
+    public static void createIfNeeded() {
+        WriteQueue.getInstance().enqueue(CREATE_IF_NEEDED);
+    }
+}
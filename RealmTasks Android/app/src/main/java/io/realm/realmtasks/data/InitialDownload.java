@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.data;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.File;
+
+import io.realm.Progress;
+import io.realm.ProgressListener;
+import io.realm.ProgressMode;
+import io.realm.Realm;
+import io.realm.RealmAsyncTask;
+import io.realm.SyncConfiguration;
+import io.realm.SyncManager;
+import io.realm.SyncSession;
+import io.realm.realmtasks.metrics.InitialSyncMetrics;
+
+/**
+ * Opens the user's Realm for the first time on this device and reports the progress of the initial download. The
+ * configuration passed in waits for the initial remote data, so this takes as long as downloading the user's data.
+ */
+public class InitialDownload {
+
+    private static final long SESSION_POLL_INTERVAL_MS = 100;
+
+    public interface Listener {
+        void onProgress(long transferredBytes, long transferableBytes);
+        void onComplete();
+        void onError(Throwable error);
+    }
+
+    private final SyncConfiguration configuration;
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private RealmAsyncTask realmTask;
+    private SyncSession session;
+    private long transferredBytes;
+
+    private final ProgressListener progressListener = new ProgressListener() {
+        @Override
+        public void onChange(final Progress progress) {
+            // Called on a background thread.
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (realmTask != null) {
+                        transferredBytes = progress.getTransferredBytes();
+                        listener.onProgress(progress.getTransferredBytes(), progress.getTransferableBytes());
+                    }
+                }
+            });
+        }
+    };
+
+    // The session is only created by the background task opening the Realm, keep looking until it's there.
+    private final Runnable attachProgressListener = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                session = SyncManager.getSession(configuration);
+            } catch (IllegalStateException e) {
+                handler.postDelayed(this, SESSION_POLL_INTERVAL_MS);
+                return;
+            }
+            session.addDownloadProgressListener(ProgressMode.CURRENT_CHANGES, progressListener);
+        }
+    };
+
+    public InitialDownload(SyncConfiguration configuration, Listener listener) {
+        this.configuration = configuration;
+        this.listener = listener;
+    }
+
+    /**
+     * Returns whether the default Realm hasn't been downloaded to this device yet.
+     */
+    public static boolean isNeeded() {
+        return !new File(Realm.getDefaultConfiguration().getPath()).exists();
+    }
+
+    /**
+     * Starts the download. Must be called from the main thread, the listener is called on it.
+     */
+    public void start() {
+        realmTask = Realm.getInstanceAsync(configuration, new Realm.Callback() {
+            @Override
+            public void onSuccess(Realm realm) {
+                realm.close();
+                stop();
+                InitialSyncMetrics.onDownloaded(transferredBytes);
+                listener.onComplete();
+            }
+
+            @Override
+            public void onError(Throwable exception) {
+                stop();
+                listener.onError(exception);
+            }
+        });
+        attachProgressListener.run();
+    }
+
+    public void cancel() {
+        if (realmTask != null) {
+            realmTask.cancel();
+        }
+        stop();
+    }
+
+    private void stop() {
+        realmTask = null;
+        handler.removeCallbacks(attachProgressListener);
+        if (session != null) {
+            session.removeProgressListener(progressListener);
+            session = null;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.data;
+
+import java.util.Arrays;
+
+/**
+ * A growable array of ints, used by {@link SearchIndex} instead of boxed collections.
+ */
+class IntArray {
+
+    private int[] values = new int[4];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    void set(int index, int value) {
+        values[index] = value;
+    }
+
+    void add(int value) {
+        insert(size, value);
+    }
+
+    void insert(int index, int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        System.arraycopy(values, index, values, index + 1, size - index);
+        values[index] = value;
+        size++;
+    }
+
+    void removeAt(int index) {
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Inserts {@code value} into an array that is sorted in ascending order, unless it is already there.
+     */
+    void addSorted(int value) {
+        // Usually the largest value so far, check the end first.
+        if (size == 0 || values[size - 1] < value) {
+            add(value);
+            return;
+        }
+        final int index = Arrays.binarySearch(values, 0, size, value);
+        if (index < 0) {
+            insert(-index - 1, value);
+        }
+    }
+
+    /**
+     * Removes {@code value} from an array that is sorted in ascending order.
+     */
+    void removeSorted(int value) {
+        final int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            removeAt(index);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.data;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.Iterator;
+
+import io.realm.Realm;
+import io.realm.RealmList;
+import io.realm.RealmResults;
+import io.realm.realmtasks.model.Task;
+import io.realm.realmtasks.model.TaskList;
+import io.realm.realmtasks.model.TaskListList;
+
+/**
+ * Deletes task lists without one transaction that is as large as the list.
+ *
+ * {@link #delete(Realm, TaskList)} only removes the list from {@link TaskListList} and marks it as deleted, so it
+ * disappears right away. Its tasks are then deleted {@link #CHUNK_SIZE} at a time on the {@link WriteQueue}, each
+ * chunk being a separate job, so that other writes and their sync uploads get in between. The list itself is deleted
+ * with the last chunk. Since the mark is stored in the Realm, {@link #resume()} picks up where a previous process
+ * left off.
+ */
+public class ListDeletion {
+
+    private static final int CHUNK_SIZE = 500;
+
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+
+    private static ProgressListener progressListener;
+    private static boolean running;
+    private static boolean resumed;
+
+    public interface ProgressListener {
+        /**
+         * Called on the main thread after every chunk with the number of tasks that are left, 0 once done.
+         */
+        void onProgress(long remaining);
+    }
+
+    private static final WriteQueue.Job DELETE_CHUNK = new WriteQueue.Job() {
+        @Override
+        public void run(Realm realm) {
+            final RealmResults<TaskList> deleted = findDeleted(realm);
+            if (deleted.isEmpty()) {
+                finish(0);
+                return;
+            }
+            realm.executeTransaction(new Realm.Transaction() {
+                @Override
+                public void execute(Realm realm) {
+                    final TaskList taskList = findDeleted(realm).first(null);
+                    if (taskList == null) {
+                        return;
+                    }
+                    final RealmList<Task> items = taskList.getItems();
+                    // From the end, so the remaining links don't have to be shifted.
+                    for (int i = 0; i < CHUNK_SIZE && !items.isEmpty(); i++) {
+                        items.deleteLastFromRealm();
+                    }
+                    if (items.isEmpty()) {
+                        taskList.deleteFromRealm();
+                    }
+                }
+            });
+            final long remaining = countRemaining(realm);
+            if (findDeleted(realm).isEmpty()) {
+                finish(remaining);
+            } else {
+                report(remaining);
+                WriteQueue.getInstance().enqueue(this);
+            }
+        }
+    };
+
+    private ListDeletion() {
+    }
+
+    /**
+     * Hides the list and schedules the deletion of its tasks. Must be called inside a transaction on the
+     * {@link WriteQueue}. Lists without tasks are deleted right away.
+     */
+    public static void delete(Realm realm, TaskList taskList) {
+        if (taskList.getItems().isEmpty()) {
+            taskList.deleteFromRealm();
+            return;
+        }
+        removeFromLists(realm, taskList);
+        taskList.setDeleted(true);
+        start();
+    }
+
+    /**
+     * Continues deleting the lists that were marked as deleted by an earlier process. Does nothing after the first
+     * call.
+     */
+    public static void resume() {
+        if (resumed) {
+            return;
+        }
+        resumed = true;
+        start();
+    }
+
+    /**
+     * Sets the listener for the progress of the deletion, or null. Must be called from the main thread.
+     */
+    public static void setProgressListener(ProgressListener listener) {
+        progressListener = listener;
+    }
+
+    private static synchronized void start() {
+        if (!running) {
+            running = true;
+            WriteQueue.getInstance().enqueue(DELETE_CHUNK);
+        }
+    }
+
+    private static void removeFromLists(Realm realm, TaskList taskList) {
+        final String id = taskList.getId();
+        for (TaskListList taskListList : realm.where(TaskListList.class).findAll()) {
+            // All links, the list might be in there several times, see DuplicateLists.
+            final Iterator<TaskList> it = taskListList.getItems().iterator();
+            while (it.hasNext()) {
+                if (id.equals(it.next().getId())) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private static RealmResults<TaskList> findDeleted(Realm realm) {
+        return realm.where(TaskList.class).equalTo(TaskList.FIELD_DELETED, true).findAll();
+    }
+
+    private static long countRemaining(Realm realm) {
+        long remaining = 0;
+        for (TaskList taskList : findDeleted(realm)) {
+            remaining += taskList.getItems().size();
+        }
+        return remaining;
+    }
+
+    private static void finish(long remaining) {
+        synchronized (ListDeletion.class) {
+            running = false;
+        }
+        report(remaining);
+    }
+
+    private static void report(final long remaining) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (progressListener != null) {
+                    progressListener.onProgress(remaining);
+                }
+            }
+        });
+    }
+}
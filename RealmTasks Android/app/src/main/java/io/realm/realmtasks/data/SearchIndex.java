@@ -0,0 +1,294 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.data;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.realm.OrderedCollectionChangeSet;
+import io.realm.OrderedRealmCollectionChangeListener;
+import io.realm.Realm;
+import io.realm.RealmModel;
+import io.realm.RealmResults;
+import io.realm.realmtasks.model.Task;
+import io.realm.realmtasks.model.TaskList;
+
+/**
+ * In-memory inverted index over the text of all tasks and lists, for searching as the user types.
+ * <p>
+ * The index lives on its own looper thread with its own Realm instance and is kept up to date from the change sets
+ * of two queries, one for the tasks and one for the lists that aren't deleted, so after the first build only the
+ * objects that changed are indexed again. The words and the ranking are in {@link TextIndex}. The time a query takes
+ * is recorded as {@link #QUERY_TIME}.
+ */
+public class SearchIndex {
+
+    public static final String QUERY_TIME = "search.query_us";
+    public static final int MAX_RESULTS = 50;
+
+    private static SearchIndex instance;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Handler handler;
+
+    // Only used on the index thread.
+    private Realm realm;
+    private final List<Source<?>> sources = new ArrayList<>();
+    private final TextIndex index = new TextIndex();
+    private Runnable pendingQuery;
+
+    public interface Callback {
+        /**
+         * Called on the main thread with the best matches first.
+         */
+        void onResults(String query, List<Result> results);
+    }
+
+    /**
+     * A matching task or list.
+     */
+    public static class Result {
+        private final boolean list;
+        private final String text;
+        private final String listId;
+        private final String listTitle;
+        private final String taskId;
+        private final boolean completed;
+
+        Result(boolean list, String text, String listId, String listTitle, String taskId, boolean completed) {
+            this.list = list;
+            this.text = text;
+            this.listId = listId;
+            this.listTitle = listTitle;
+            this.taskId = taskId;
+            this.completed = completed;
+        }
+
+        /**
+         * Whether a list matched, rather than a task.
+         */
+        public boolean isList() {
+            return list;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public String getListId() {
+            return listId;
+        }
+
+        public String getListTitle() {
+            return listTitle;
+        }
+
+        /**
+         * Returns the id of the matching task, or null if the list itself matched or the task has no id yet.
+         */
+        public String getTaskId() {
+            return taskId;
+        }
+
+        public boolean isCompleted() {
+            return completed;
+        }
+    }
+
+    public static synchronized SearchIndex getInstance() {
+        if (instance == null) {
+            instance = new SearchIndex();
+        }
+        return instance;
+    }
+
+    private SearchIndex() {
+    }
+
+    /**
+     * Starts building the index for the default Realm, if it isn't running already. Must be called from the main
+     * thread.
+     */
+    public void start() {
+        if (handler != null) {
+            return;
+        }
+        final HandlerThread thread = new HandlerThread("RealmTasks-Search", Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                open();
+            }
+        });
+    }
+
+    /**
+     * Drops the index and stops its thread, e.g. when the user logs out. Must be called from the main thread. The
+     * next call to {@link #getInstance()} returns a new index, so that it never shares its state with the thread that
+     * is still shutting down.
+     */
+    public void stop() {
+        synchronized (SearchIndex.class) {
+            if (instance == this) {
+                instance = null;
+            }
+        }
+        if (handler == null) {
+            return;
+        }
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                close();
+                Looper.myLooper().quit();
+            }
+        });
+        handler = null;
+    }
+
+    /**
+     * Searches for the tasks and lists that contain words starting with all words of {@code query}. If the index is
+     * still being built, the query runs once it is done. Only the latest query is kept.
+     */
+    public void search(final String query, final Callback callback) {
+        start();
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                pendingQuery = new Runnable() {
+                    @Override
+                    public void run() {
+                        final List<Result> results = index.query(query, MAX_RESULTS);
+                        mainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                callback.onResults(query, results);
+                            }
+                        });
+                    }
+                };
+                runPendingQuery();
+            }
+        });
+    }
+
+    private void open() {
+        realm = Realm.getDefaultInstance();
+        // Tasks of deleted lists stay in the Realm until ListDeletion gets to them, leave them out right away.
+        sources.add(new Source<Task>(realm.where(Task.class)
+                .equalTo(Task.FIELD_LISTS + "." + TaskList.FIELD_DELETED, false)
+                .findAllAsync()) {
+            @Override
+            int addDocument(Task task) {
+                final TaskList list = task.getLists().where().equalTo(TaskList.FIELD_DELETED, false).findFirst();
+                return index.add(TextIndex.KIND_TASK, task.getText(), list != null ? list.getId() : null,
+                        task.getId(), task.isCompleted());
+            }
+        });
+        sources.add(new Source<TaskList>(realm.where(TaskList.class)
+                .equalTo(TaskList.FIELD_DELETED, false)
+                .findAllAsync()) {
+            @Override
+            int addDocument(TaskList taskList) {
+                return index.add(TextIndex.KIND_LIST, taskList.getText(), taskList.getId(), null,
+                        taskList.isCompleted());
+            }
+        });
+    }
+
+    private void close() {
+        for (Source<?> source : sources) {
+            source.results.removeAllChangeListeners();
+        }
+        sources.clear();
+        index.clear();
+        pendingQuery = null;
+        if (realm != null) {
+            realm.close();
+            realm = null;
+        }
+    }
+
+    private void runPendingQuery() {
+        for (Source<?> source : sources) {
+            if (!source.loaded) {
+                return;
+            }
+        }
+        if (pendingQuery != null) {
+            final Runnable query = pendingQuery;
+            pendingQuery = null;
+            query.run();
+        }
+    }
+
+    /**
+     * Keeps the documents of one query in sync with its results, position by position.
+     */
+    private abstract class Source<T extends RealmModel> implements OrderedRealmCollectionChangeListener<RealmResults<T>> {
+
+        final RealmResults<T> results;
+        // The document of every position in the results.
+        final IntArray documentIds = new IntArray();
+        boolean loaded;
+
+        Source(RealmResults<T> results) {
+            this.results = results;
+            results.addChangeListener(this);
+        }
+
+        /**
+         * Indexes the object and returns the id of its document.
+         */
+        abstract int addDocument(T object);
+
+        @Override
+        public void onChange(RealmResults<T> results, OrderedCollectionChangeSet changeSet) {
+            if (changeSet == null) {
+                for (int i = 0; i < documentIds.size(); i++) {
+                    index.remove(documentIds.get(i));
+                }
+                documentIds.clear();
+                for (int i = 0; i < results.size(); i++) {
+                    documentIds.add(addDocument(results.get(i)));
+                }
+            } else {
+                final int[] deletions = changeSet.getDeletions();
+                for (int i = deletions.length - 1; i >= 0; i--) {
+                    index.remove(documentIds.get(deletions[i]));
+                    documentIds.removeAt(deletions[i]);
+                }
+                for (int position : changeSet.getInsertions()) {
+                    documentIds.insert(position, addDocument(results.get(position)));
+                }
+                for (int position : changeSet.getChanges()) {
+                    index.remove(documentIds.get(position));
+                    documentIds.set(position, addDocument(results.get(position)));
+                }
+            }
+            loaded = true;
+            runPendingQuery();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Device-local settings of what is synced. Changes take effect right away.
+ */
+public class SyncSettings {
+
+    private static final String PREFERENCES_NAME = "sync_settings";
+    private static final String KEY_ARCHIVE_ENABLED = "archive_enabled";
+
+    private static SharedPreferences preferences;
+
+    private SyncSettings() {
+    }
+
+    public static void init(Context context) {
+        preferences = context.getApplicationContext().getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Whether old completed tasks are moved from the synced Realm to the local archive. This removes them from the
+     * user's other devices, so it is off unless the user turned it on.
+     */
+    public static boolean isArchiveEnabled() {
+        return preferences.getBoolean(KEY_ARCHIVE_ENABLED, false);
+    }
+
+    public static void setArchiveEnabled(boolean enabled) {
+        preferences.edit().putBoolean(KEY_ARCHIVE_ENABLED, enabled).apply();
+    }
+}
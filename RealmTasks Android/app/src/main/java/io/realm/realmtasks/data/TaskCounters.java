@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.data;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.realm.Progress;
+import io.realm.ProgressListener;
+import io.realm.ProgressMode;
+import io.realm.Realm;
+import io.realm.RealmList;
+import io.realm.RealmResults;
+import io.realm.SyncConfiguration;
+import io.realm.SyncManager;
+import io.realm.SyncSession;
+import io.realm.realmtasks.model.Task;
+import io.realm.realmtasks.model.TaskList;
+
+/**
+ * Maintains {@link TaskList#getOpenCount()} and {@link TaskList#getTotalCount()}.
+ *
+ * Local writes keep the counters up to date with {@link #adjust(TaskList, int, int)}, so that they change right
+ * away. They are plain synced ints though: when two devices adjust the same list concurrently the last write wins and
+ * the other adjustment is lost, and clients that don't know about the counters don't adjust them at all. The items
+ * are therefore the source of truth, and whenever changes from other clients have been downloaded the counters are
+ * recomputed from them in the background, see {@link #start(Realm)}.
+ */
+public class TaskCounters {
+
+    private static final long REPAIR_DELAY_MS = 2000;
+
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+
+    private static SyncSession session;
+    private static ProgressListener downloadListener;
+
+    private static final Runnable repairRunnable = new Runnable() {
+        @Override
+        public void run() {
+            WriteQueue.getInstance().enqueue(REPAIR);
+        }
+    };
+
+    private static final WriteQueue.Job REPAIR = new WriteQueue.Job() {
+        @Override
+        public void run(Realm realm) {
+            final List<String> stale = new ArrayList<>();
+            for (TaskList taskList : realm.where(TaskList.class).equalTo(TaskList.FIELD_DELETED, false).findAll()) {
+                if (!isUpToDate(taskList)) {
+                    stale.add(taskList.getId());
+                }
+            }
+            if (stale.isEmpty()) {
+                return;
+            }
+            realm.executeTransaction(new Realm.Transaction() {
+                @Override
+                public void execute(Realm realm) {
+                    final RealmResults<TaskList> lists = realm.where(TaskList.class)
+                            .in(TaskList.FIELD_ID, stale.toArray(new String[stale.size()]))
+                            .findAll();
+                    for (TaskList taskList : lists) {
+                        recompute(taskList);
+                    }
+                }
+            });
+        }
+    };
+
+    private TaskCounters() {
+    }
+
+    /**
+     * Applies a local change to the counters. Must be called inside the transaction that changes the items.
+     */
+    public static void adjust(TaskList taskList, int openDelta, int totalDelta) {
+        taskList.setOpenCount(Math.max(0, taskList.getOpenCount() + openDelta));
+        taskList.setTotalCount(Math.max(0, taskList.getTotalCount() + totalDelta));
+    }
+
+    /**
+     * Repairs the counters once, for the changes downloaded while not started, and again whenever changes from other
+     * clients have been downloaded, until {@link #stop()}. Local writes don't trigger a repair, so they aren't held up
+     * behind one on the {@link WriteQueue}. Must be called from the main thread.
+     */
+    public static void start(Realm realm) {
+        stop();
+        if (!(realm.getConfiguration() instanceof SyncConfiguration)) {
+            return;
+        }
+        session = SyncManager.getSession((SyncConfiguration) realm.getConfiguration());
+        downloadListener = new DownloadListener();
+        session.addDownloadProgressListener(ProgressMode.INDEFINITELY, downloadListener);
+        scheduleRepair();
+    }
+
+    /**
+     * Stops repairing on downloads. Must be called from the main thread.
+     */
+    public static void stop() {
+        if (session != null) {
+            session.removeProgressListener(downloadListener);
+            session = null;
+            downloadListener = null;
+        }
+    }
+
+    /**
+     * Recomputes the counters of all lists shortly after the last call, on the {@link WriteQueue}. Nothing is written
+     * if all counters are correct.
+     */
+    private static void scheduleRepair() {
+        handler.removeCallbacks(repairRunnable);
+        handler.postDelayed(repairRunnable, REPAIR_DELAY_MS);
+    }
+
+    private static class DownloadListener implements ProgressListener {
+
+        private long downloaded = -1;
+
+        @Override
+        public void onChange(Progress progress) {
+            // Called on a background thread, once per progress update of the session.
+            final long transferred = progress.getTransferredBytes();
+            if (downloaded >= 0 && transferred > downloaded) {
+                scheduleRepair();
+            }
+            downloaded = transferred;
+        }
+    }
+
+    private static boolean isUpToDate(TaskList taskList) {
+        final RealmList<Task> items = taskList.getItems();
+        return taskList.getTotalCount() == items.size()
+                && taskList.getOpenCount() == items.where().equalTo(Task.FIELD_COMPLETED, false).count();
+    }
+
+    private static void recompute(TaskList taskList) {
+        final RealmList<Task> items = taskList.getItems();
+        taskList.setTotalCount(items.size());
+        taskList.setOpenCount(items.where().equalTo(Task.FIELD_COMPLETED, false).count());
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.realm.realmtasks.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+import io.realm.realmtasks.metrics.Metrics;
+
+/**
+ * The in-memory part of {@link SearchIndex}: documents, the inverted index over their words and the ranking. Plain
+ * Java and not thread safe, {@link SearchIndex} only uses it on its own thread.
+ * <p>
+ * Every word is a sorted array of document ids in a {@link TreeMap}, which makes prefix matching a range lookup. A
+ * query starts from the word with the fewest documents and checks the other words against the candidates only, so it
+ * stays well below a frame with 100,000 tasks, see {@code TextIndexBenchmarkTest}.
+ */
+class TextIndex {
+
+    static final int KIND_TASK = 0;
+    static final int KIND_LIST = 1;
+
+    // Documents and their rank by id. Ids of removed documents are reused, so these stay as large as the index.
+    private Document[] documents = new Document[64];
+    private int[] ranks = new int[64];
+    private final IntArray freeIds = new IntArray();
+    private int idCount;
+    private int size;
+    private final TreeMap<String, IntArray> postings = new TreeMap<>();
+    private final Map<String, String> listTitles = new HashMap<>();
+    // Documents already scored by the running query, by id.
+    private final BitSet seen = new BitSet();
+
+    private static class Document {
+        final int id;
+        final int kind;
+        final String text;
+        final String[] words;
+        final String listId;
+        final String taskId;
+        final boolean completed;
+
+        Document(int id, int kind, String text, String listId, String taskId, boolean completed) {
+            this.id = id;
+            this.kind = kind;
+            this.text = text;
+            this.words = tokenize(text);
+            this.listId = listId;
+            this.taskId = taskId;
+            this.completed = completed;
+        }
+
+        /**
+         * Returns 2 if a word equals {@code term}, 1 if a word starts with it and 0 otherwise.
+         */
+        int match(String term) {
+            // The words are sorted, so the first word not before the term is the one that can equal or start with it.
+            final int index = Arrays.binarySearch(words, term);
+            if (index >= 0) {
+                return 2;
+            }
+            final int next = -index - 1;
+            return next < words.length && words[next].startsWith(term) ? 1 : 0;
+        }
+    }
+
+    private static class ScoredDocument {
+        final Document document;
+        final int score;
+        final int rank;
+
+        ScoredDocument(Document document, int score, int rank) {
+            this.document = document;
+            this.score = score;
+            this.rank = rank;
+        }
+    }
+
+    // Best first: higher score, then lower rank.
+    private static final Comparator<ScoredDocument> RANKING = new Comparator<ScoredDocument>() {
+        @Override
+        public int compare(ScoredDocument a, ScoredDocument b) {
+            return TextIndex.compare(a.score, a.rank, b);
+        }
+    };
+
+    private static int compare(int score, int rank, ScoredDocument other) {
+        if (score != other.score) {
+            return score > other.score ? -1 : 1;
+        }
+        return rank < other.rank ? -1 : (rank == other.rank ? 0 : 1);
+    }
+
+    /**
+     * Orders documents with the same score: open before completed, then shorter text first. Kept in an array next to
+     * the documents so that candidates that don't make it into the results are rejected without touching them.
+     */
+    private static int rankOf(Document document) {
+        final int length = document.text != null ? Math.min(document.text.length(), Integer.MAX_VALUE >> 1) : 0;
+        return document.completed ? (Integer.MAX_VALUE >> 1) + 1 + length : length;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Indexes a task or list and returns the id of its document.
+     */
+    int add(int kind, String text, String listId, String taskId, boolean completed) {
+        final int id;
+        if (freeIds.size() > 0) {
+            id = freeIds.get(freeIds.size() - 1);
+            freeIds.removeAt(freeIds.size() - 1);
+        } else {
+            id = idCount++;
+            if (id == documents.length) {
+                documents = Arrays.copyOf(documents, id * 2);
+                ranks = Arrays.copyOf(ranks, id * 2);
+            }
+        }
+        final Document document = new Document(id, kind, text, listId, taskId, completed);
+        documents[id] = document;
+        ranks[id] = rankOf(document);
+        size++;
+        String previous = null;
+        for (String word : document.words) {
+            if (word.equals(previous)) {
+                continue;
+            }
+            IntArray ids = postings.get(word);
+            if (ids == null) {
+                ids = new IntArray();
+                postings.put(word, ids);
+            }
+            ids.addSorted(document.id);
+            previous = word;
+        }
+        if (document.kind == KIND_LIST) {
+            listTitles.put(document.listId, document.text);
+        }
+        return document.id;
+    }
+
+    void remove(int id) {
+        final Document document = id >= 0 && id < idCount ? documents[id] : null;
+        if (document == null) {
+            return;
+        }
+        documents[id] = null;
+        freeIds.add(id);
+        size--;
+        for (String word : document.words) {
+            final IntArray ids = postings.get(word);
+            if (ids == null) {
+                continue;
+            }
+            ids.removeSorted(id);
+            if (ids.size() == 0) {
+                postings.remove(word);
+            }
+        }
+        if (document.kind == KIND_LIST) {
+            listTitles.remove(document.listId);
+        }
+    }
+
+    void clear() {
+        Arrays.fill(documents, null);
+        freeIds.clear();
+        idCount = 0;
+        size = 0;
+        postings.clear();
+        listTitles.clear();
+    }
+
+    /**
+     * Returns the documents that contain words starting with all words of {@code query}, at most {@code maxResults},
+     * best first.
+     */
+    List<SearchIndex.Result> query(String query, int maxResults) {
+        final long start = System.nanoTime();
+        final String[] terms = tokenize(query);
+        if (terms.length == 0) {
+            return Collections.emptyList();
+        }
+
+        // The candidates are the documents of the most selective term.
+        int selective = -1;
+        long fewest = Long.MAX_VALUE;
+        for (int i = 0; i < terms.length; i++) {
+            long count = 0;
+            for (IntArray ids : findPrefix(terms[i]).values()) {
+                count += ids.size();
+            }
+            if (count < fewest) {
+                fewest = count;
+                selective = i;
+            }
+        }
+
+        final PriorityQueue<ScoredDocument> best = new PriorityQueue<>(maxResults + 1,
+                Collections.reverseOrder(RANKING));
+        final String selectiveTerm = terms[selective];
+        seen.clear();
+        // The best score the other terms can add: they can only match exactly if there is a word equal to them.
+        int otherTermsScore = 0;
+        for (int i = 0; i < terms.length; i++) {
+            if (i != selective) {
+                otherTermsScore += postings.containsKey(terms[i]) ? 2 : 1;
+            }
+        }
+        // The word equal to the term, if any, comes first. The other words only start with it.
+        for (Map.Entry<String, IntArray> entry : findPrefix(selectiveTerm).entrySet()) {
+            final IntArray ids = entry.getValue();
+            final int match = entry.getKey().length() == selectiveTerm.length() ? 2 : 1;
+            for (int i = 0; i < ids.size(); i++) {
+                final int id = ids.get(i);
+                // A document with several words starting with the term is listed under each of them, only take it
+                // under the first one, which is its best match.
+                if (seen.get(id)) {
+                    continue;
+                }
+                seen.set(id);
+                final int rank = ranks[id];
+                if (best.size() == maxResults && compare(match + otherTermsScore, rank, best.peek()) >= 0) {
+                    // Can't do better than the worst result so far.
+                    continue;
+                }
+                final Document document = documents[id];
+                final int score = score(document, terms, selective, match);
+                if (score == 0) {
+                    continue;
+                }
+                if (best.size() == maxResults && compare(score, rank, best.peek()) >= 0) {
+                    continue;
+                }
+                best.add(new ScoredDocument(document, score, rank));
+                if (best.size() > maxResults) {
+                    best.poll();
+                }
+            }
+        }
+
+        final List<ScoredDocument> ranked = new ArrayList<>(best);
+        Collections.sort(ranked, RANKING);
+        final List<SearchIndex.Result> results = new ArrayList<>(ranked.size());
+        for (ScoredDocument scored : ranked) {
+            final Document document = scored.document;
+            results.add(new SearchIndex.Result(document.kind == KIND_LIST, document.text, document.listId,
+                    listTitles.get(document.listId), document.taskId, document.completed));
+        }
+        Metrics.record(SearchIndex.QUERY_TIME, (System.nanoTime() - start) / 1000);
+        return results;
+    }
+
+    /**
+     * Returns the sum of the matches of all terms, or 0 if one of them doesn't match. The match of the term at
+     * {@code known} is already known.
+     */
+    private static int score(Document document, String[] terms, int known, int knownMatch) {
+        int score = knownMatch;
+        for (int i = 0; i < terms.length; i++) {
+            if (i == known) {
+                continue;
+            }
+            final int match = document.match(terms[i]);
+            if (match == 0) {
+                return 0;
+            }
+            score += match;
+        }
+        return score;
+    }
+
+    private NavigableMap<String, IntArray> findPrefix(String prefix) {
+        return postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * Lower case words of letters and digits, sorted so that duplicates are next to each other.
+     */
+    static String[] tokenize(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        final List<String> words = new ArrayList<>();
+        final String lowerCase = text.toLowerCase(Locale.getDefault());
+        int start = -1;
+        for (int i = 0; i <= lowerCase.length(); i++) {
+            final boolean letter = i < lowerCase.length() && Character.isLetterOrDigit(lowerCase.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                words.add(lowerCase.substring(start, i));
+                start = -1;
+            }
+        }
+        Collections.sort(words);
+        return words.toArray(new String[words.size()]);
+    }
+}
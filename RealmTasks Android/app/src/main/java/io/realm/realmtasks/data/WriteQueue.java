@@ -0,0 +1,168 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import io.realm.Realm;
+import io.realm.realmtasks.metrics.TransactionMetrics;
+
+/**
+ * Single writer for the default Realm. Transactions are executed one at a time, in the order they were enqueued, on
+ * a dedicated background thread, so the UI thread never waits for the write lock or for the commit to hit the disk.
+ *
+ * Transactions run against a background Realm instance and must look up the objects they modify themselves;
+ * managed objects from the UI thread cannot be used inside them.
+ */
+public class WriteQueue {
+
+    private static final String TAG = "WriteQueue";
+
+    private static WriteQueue instance;
+
+    private final ExecutorService executor;
+    private final Handler mainHandler;
+
+    public interface Callback {
+        void onSuccess();
+        void onError(Throwable error);
+    }
+
+    /**
+     * Background work that manages its own transactions, e.g. to skip the write entirely when there is nothing to
+     * do or to split a large change into several commits.
+     */
+    public interface Job {
+        void run(Realm realm);
+    }
+
+    public static synchronized WriteQueue getInstance() {
+        if (instance == null) {
+            instance = new WriteQueue();
+        }
+        return instance;
+    }
+
+    private WriteQueue() {
+        executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "RealmTasks-Writer");
+            }
+        });
+        mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    public void enqueue(Realm.Transaction transaction) {
+        enqueue(transaction, null);
+    }
+
+    /**
+     * Enqueues a transaction. The callback, if any, is invoked on the main thread once the transaction has been
+     * committed or has failed.
+     */
+    public void enqueue(final Realm.Transaction transaction, final Callback callback) {
+        enqueue(new Job() {
+            @Override
+            public void run(Realm realm) {
+                realm.executeTransaction(transaction);
+            }
+        }, callback);
+    }
+
+    /**
+     * Like {@link #enqueue(Realm.Transaction, Callback)}, but records how long the transaction waited for the write
+     * lock, ran and took to commit in {@link TransactionMetrics}.
+     */
+    public void enqueue(final TransactionMetrics.Operation operation, final Realm.Transaction transaction,
+                        final Callback callback) {
+        enqueue(new Job() {
+            @Override
+            public void run(Realm realm) {
+                executeMeasured(realm, operation, transaction);
+            }
+        }, callback);
+    }
+
+    public void enqueue(Job job) {
+        enqueue(job, null);
+    }
+
+    public void enqueue(final Job job, final Callback callback) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                RuntimeException error = null;
+                Realm realm = null;
+                try {
+                    realm = Realm.getDefaultInstance();
+                    job.run(realm);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Write failed", e);
+                    error = e;
+                } finally {
+                    if (realm != null) {
+                        realm.close();
+                    }
+                }
+                deliver(callback, error);
+            }
+        });
+    }
+
+    // Same as Realm.executeTransaction(), with timestamps between the steps.
+    private static void executeMeasured(Realm realm, TransactionMetrics.Operation operation,
+                                        Realm.Transaction transaction) {
+        final long start = System.nanoTime();
+        realm.beginTransaction();
+        final long locked = System.nanoTime();
+        try {
+            transaction.execute(realm);
+        } catch (RuntimeException e) {
+            if (realm.isInTransaction()) {
+                realm.cancelTransaction();
+            }
+            throw e;
+        }
+        final long executed = System.nanoTime();
+        realm.commitTransaction();
+        final long committed = System.nanoTime();
+        TransactionMetrics.record(operation, locked - start, executed - locked, committed - executed);
+    }
+
+    private void deliver(final Callback callback, final Throwable error) {
+        if (callback == null) {
+            return;
+        }
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (error == null) {
+                    callback.onSuccess();
+                } else {
+                    callback.onError(error);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.list;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.Date;
+
+import io.realm.OrderedRealmCollection;
+import io.realm.RealmRecyclerViewAdapter;
+import io.realm.realmtasks.R;
+import io.realm.realmtasks.model.ArchivedTask;
+
+/**
+ * Read-only rows for the tasks in the archive.
+ */
+public class ArchivedTaskAdapter extends RealmRecyclerViewAdapter<ArchivedTask, ItemViewHolder> {
+
+    private final RelativeDateCache relativeDates;
+
+    public ArchivedTaskAdapter(Context context, OrderedRealmCollection<ArchivedTask> data) {
+        super(data, true);
+        relativeDates = new RelativeDateCache(context);
+    }
+
+    @Override
+    public ItemViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        final View rowItem = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_row, parent, false);
+        return new ItemViewHolder(rowItem, this);
+    }
+
+    @Override
+    public void onBindViewHolder(ItemViewHolder holder, int position) {
+        holder.reset();
+        final ArchivedTask archivedTask = getItem(position);
+        if (archivedTask == null || !archivedTask.isValid()) {
+            return;
+        }
+        holder.getText().setText(archivedTask.getText());
+        final Date completedAt = archivedTask.getCompletedAt();
+        holder.setMetadataText(completedAt != null ? relativeDates.format(completedAt.getTime()) : null);
+        holder.setCompleted(true);
+    }
+}
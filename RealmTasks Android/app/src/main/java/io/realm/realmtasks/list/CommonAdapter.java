@@ -17,37 +17,754 @@
 package io.realm.realmtasks.list;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
-import android.view.LayoutInflater;
-import android.view.View;
 import android.view.ViewGroup;
+import android.widget.Toast;
 
-import java.util.Collections;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
-import io.realm.OrderedRealmCollection;
+import io.realm.OrderedCollectionChangeSet;
+import io.realm.OrderedRealmCollectionChangeListener;
+import io.realm.Realm;
+import io.realm.RealmList;
 import io.realm.RealmModel;
+import io.realm.RealmObject;
 import io.realm.RealmRecyclerViewAdapter;
 import io.realm.realmtasks.R;
+import io.realm.realmtasks.data.EditCoalescer;
+import io.realm.realmtasks.data.WriteQueue;
+import io.realm.realmtasks.metrics.TransactionMetrics;
 
-public class CommonAdapter<T extends RealmModel> extends RealmRecyclerViewAdapter<T, RecyclerView.ViewHolder> {
+/**
+ * Base adapter for the task and list screens.
+ *
+ * Instead of the automatic updates of {@link RealmRecyclerViewAdapter}, changes to the backing list are applied
+ * from the {@link OrderedCollectionChangeSet} as precise insertions, removals and moves, and rows are only re-bound
+ * when their displayed content changed. {@link RowStates} keeps track of what is on screen. When Realm doesn't
+ * provide a change set, the new state is diffed against the displayed one on a background thread.
+ *
+ * Lists longer than {@link #PAGING_THRESHOLD} when the adapter is attached are paged: the row states only cover a
+ * window of about {@link #WINDOW_SIZE} rows around the visible ones, change sets are mapped into that window, and the
+ * window is read again on a background Realm as the user scrolls. The work per change and the memory used then depend
+ * on the screen, not on the length of the list. Paged lists are re-bound instead of diffed when Realm doesn't provide
+ * a change set, and moves are animated as a removal and an insertion.
+ */
+public abstract class CommonAdapter<T extends RealmModel> extends RealmRecyclerViewAdapter<T, RecyclerView.ViewHolder> {
+
+    private static final int PAGING_THRESHOLD = 1000;
+    private static final int WINDOW_SIZE = 200;
+    // The window is moved once the visible rows get this close to one of its ends.
+    private static final int WINDOW_MARGIN = 50;
+
+    private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "RealmTasks-Diff");
+        }
+    });
 
     protected Context context;
     protected OnFirstItemUpdateListener onFirstItemUpdateListener;
 
-    public CommonAdapter(Context context, OrderedRealmCollection<T> items) {
-        super(items, true);
+    private final RealmList<T> items;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private RowStates rowStates;
+    // Incremented whenever the displayed state changes, so that outdated diff results are dropped.
+    private int diffGeneration;
+    private boolean diffPending;
+    // Paging, see the class documentation. Without paging the window is the whole list.
+    private boolean paged;
+    private int windowStart;
+    private int rowCount;
+    private boolean windowLoading;
+    // Middle of the visible rows as of the last scroll, the window is trimmed around it.
+    private int visibleCenter;
+    // Move of a dragged row that is displayed but not in the data yet, see onItemDragged(). NO_POSITION if none.
+    private int projectionFrom = RecyclerView.NO_POSITION;
+    private int projectionTo = RecyclerView.NO_POSITION;
+    private boolean dragging;
+    private boolean dragCancelled;
+
+    private final OrderedRealmCollectionChangeListener<RealmList<T>> changeListener =
+            new OrderedRealmCollectionChangeListener<RealmList<T>>() {
+                @Override
+                public void onChange(RealmList<T> list, OrderedCollectionChangeSet changeSet) {
+                    applyChanges(changeSet);
+                }
+            };
+
+    private final WriteQueue.Callback writeCallback = new WriteQueue.Callback() {
+        @Override
+        public void onSuccess() {
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            Toast.makeText(context.getApplicationContext(), R.string.error_write_failed, Toast.LENGTH_SHORT).show();
+        }
+    };
+
+    private final RecyclerView.OnScrollListener windowScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+            if (!paged || projectionFrom != RecyclerView.NO_POSITION
+                    || !(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+                return;
+            }
+            final LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+            final int first = layoutManager.findFirstVisibleItemPosition();
+            final int last = layoutManager.findLastVisibleItemPosition();
+            if (first == RecyclerView.NO_POSITION) {
+                return;
+            }
+            visibleCenter = (first + last) / 2;
+            // Rows bound ahead of the window were added to it by getItemId().
+            trimWindow();
+            if (windowLoading) {
+                return;
+            }
+            final int windowEnd = windowStart + rowStates.size();
+            if ((windowStart > 0 && first < windowStart + WINDOW_MARGIN)
+                    || (windowEnd < rowCount && last >= windowEnd - WINDOW_MARGIN)) {
+                loadWindow(Math.max(0, (first + last - WINDOW_SIZE) / 2));
+            }
+        }
+    };
+
+    private final EditCoalescer editCoalescer = new EditCoalescer(writeCallback);
+    private final TextPrefetcher textPrefetcher = new TextPrefetcher(this);
+
+    public CommonAdapter(Context context, RealmList<T> items) {
+        super(items, false);
         this.context = context;
+        this.items = items;
+        rowStates = new RowStates(0);
+        setHasStableIds(true);
+    }
+
+    /**
+     * Returns a stable key for the item, used as the identity of rows when diffing. Keys of different rows may be
+     * equal; {@link RowStates} derives the unique ids that are given to the RecyclerView from them.
+     */
+    protected abstract long getItemKey(T item);
+
+    /**
+     * Returns a hash of everything the adapter binds for the item. A row is re-bound only if this changes.
+     */
+    protected abstract int getItemContentHash(T item);
+
+    /**
+     * Returns the text the adapter binds to the row's text view, so that it can be measured ahead of time.
+     */
+    protected abstract String getItemText(T item);
+
+    /**
+     * 64-bit FNV-1a hash, cheap enough to turn string identifiers into keys on the bind path.
+     */
+    protected static long hashKey(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Looks up the list backing this adapter in the given Realm. Used by transactions running on the writer thread,
+     * which cannot access {@link #getData()}. Returns {@code null} if the list no longer exists.
+     */
+    protected abstract RealmList<T> findList(Realm realm);
+
+    /**
+     * Returns the id of the item, or {@code null} if it doesn't have one.
+     */
+    @Nullable
+    protected abstract String getObjectId(T item);
+
+    /**
+     * Looks up the item with the given id in the given Realm, or returns {@code null} if there is none.
+     */
+    @Nullable
+    protected abstract T findObject(Realm realm, String id);
+
+    /**
+     * Returns the current index in {@code items} of the item identified by {@code id}, or -1 if it is gone. Writes
+     * are queued, so the positions the user acted on may be out of date by the time they run; only items without an
+     * id fall back to {@code position}. Must be called inside a transaction.
+     */
+    protected int indexOf(Realm realm, @Nullable RealmList<T> items, @Nullable String id, int position) {
+        if (items == null) {
+            return -1;
+        }
+        if (id == null) {
+            return isInRange(items, position) ? position : -1;
+        }
+        final T item = findObject(realm, id);
+        return item != null ? items.indexOf(item) : -1;
+    }
+
+    /**
+     * Persists moving the item displayed at {@code fromPosition} to {@code toPosition}.
+     */
+    public void onItemMoved(int fromPosition, int toPosition) {
+        if (fromPosition == toPosition) {
+            return;
+        }
+        final T item = getItem(fromPosition);
+        if (item == null) {
+            return;
+        }
+        // The row it ends up right below.
+        final int previousPosition = toPosition > fromPosition ? toPosition : toPosition - 1;
+        final T previous = previousPosition >= 0 ? getItem(previousPosition) : null;
+        writeMove(getObjectId(item), fromPosition, previous != null ? getObjectId(previous) : null, previousPosition);
+    }
+
+    /**
+     * Moves the item identified by {@code id} right below the one identified by {@code previousId}, or to the top if
+     * {@code previousPosition} is negative. Both are looked up when the transaction runs, so that rows inserted or
+     * removed elsewhere in the meantime don't change which item is moved nor where it ends up.
+     */
+    private void writeMove(final String id, final int position, final String previousId, final int previousPosition) {
+        executeAsync(TransactionMetrics.Operation.MOVE, new Realm.Transaction() {
+            @Override
+            public void execute(Realm realm) {
+                final RealmList<T> items = findList(realm);
+                final int fromIndex = indexOf(realm, items, id, position);
+                if (fromIndex < 0) {
+                    return;
+                }
+                int toIndex = 0;
+                if (previousPosition >= 0) {
+                    final int previousIndex = indexOf(realm, items, previousId, previousPosition);
+                    if (previousIndex < 0 || previousIndex == fromIndex) {
+                        // The row it was dropped below is gone, leave the item where it is.
+                        return;
+                    }
+                    toIndex = previousIndex < fromIndex ? previousIndex + 1 : previousIndex;
+                }
+                moveItems(items, fromIndex, toIndex);
+            }
+        });
+    }
+
+    /**
+     * Runs the transaction on the {@link WriteQueue}. Pending edits are written first so that they still apply to
+     * the positions they were made at. Failures are reported to the user, latencies to {@link TransactionMetrics}.
+     */
+    protected void executeAsync(TransactionMetrics.Operation operation, Realm.Transaction transaction) {
+        editCoalescer.flush();
+        WriteQueue.getInstance().enqueue(operation, transaction, writeCallback);
+    }
+
+    /**
+     * Queues a text edit of the item identified by {@code key}. Successive edits of the same item are folded into
+     * one commit, see {@link EditCoalescer}.
+     */
+    protected void executeEdit(String key, Realm.Transaction edit) {
+        editCoalescer.submit(key, edit);
+    }
+
+    /**
+     * Writes out pending edits immediately. Must be called before the adapter is discarded.
+     */
+    public void flushPendingEdits() {
+        editCoalescer.flush();
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        if (items.isValid()) {
+            // Changes made while detached weren't tracked. The RecyclerView binds everything from scratch anyway.
+            paged = items.size() > PAGING_THRESHOLD;
+            windowStart = 0;
+            visibleCenter = 0;
+            rowCount = items.size();
+            rowStates = readRowStates(items, 0, paged ? WINDOW_SIZE : rowCount);
+            items.addChangeListener(changeListener);
+        }
+        recyclerView.addOnScrollListener(textPrefetcher);
+        recyclerView.addOnScrollListener(windowScrollListener);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        if (items.isValid()) {
+            items.removeChangeListener(changeListener);
+        }
+        recyclerView.removeOnScrollListener(textPrefetcher);
+        recyclerView.removeOnScrollListener(windowScrollListener);
+        diffGeneration++;
+        diffPending = false;
+    }
+
+    /**
+     * Returns the number of rows the RecyclerView has been told about. While a background diff is pending this can
+     * differ from the size of the backing list.
+     */
+    @Override
+    public int getItemCount() {
+        if (!items.isValid()) {
+            return 0;
+        }
+        return paged ? rowCount : rowStates.size();
+    }
+
+    /**
+     * Returns the id {@link RowStates} gave the row. Rows of a paged list that are bound before the window has caught
+     * up with scrolling are added to the window first, so that all ids come from the same place and are unique.
+     */
+    @Override
+    public long getItemId(int position) {
+        if (paged) {
+            coverPosition(position);
+        }
+        final int offset = position - windowStart;
+        return offset >= 0 && offset < rowStates.size() ? rowStates.getId(offset) : RecyclerView.NO_ID;
+    }
+
+    @Nullable
+    @Override
+    public T getItem(int index) {
+        final int backingIndex = toBackingIndex(index);
+        return items.isValid() && backingIndex >= 0 && backingIndex < items.size() ? items.get(backingIndex) : null;
+    }
+
+    /**
+     * Moves a row while it is being dragged. Only the displayed order changes, the move from the original to the
+     * final position is persisted once by {@link #onItemDropped()}. If the data changes during the drag, the rows go
+     * back to where the data has them and the rest of the drag is ignored.
+     */
+    public void onItemDragged(int fromPosition, int toPosition) {
+        if (dragCancelled || fromPosition == toPosition || fromPosition < 0 || toPosition < 0
+                || fromPosition >= getItemCount() || toPosition >= getItemCount()) {
+            return;
+        }
+        if (!dragging) {
+            if (projectionFrom != RecyclerView.NO_POSITION || diffPending) {
+                // The previous drop hasn't been written yet, or the displayed rows are behind the data.
+                dragCancelled = true;
+                return;
+            }
+            dragging = true;
+            projectionFrom = fromPosition;
+            projectionTo = fromPosition;
+        }
+        final int fromOffset = fromPosition - windowStart;
+        final int toOffset = toPosition - windowStart;
+        if (fromPosition != projectionTo || fromOffset < 0 || toOffset < 0
+                || fromOffset >= rowStates.size() || toOffset >= rowStates.size()) {
+            return;
+        }
+        projectionTo = toPosition;
+        rowStates.move(fromOffset, toOffset);
+        notifyItemMoved(fromPosition, toPosition);
+    }
+
+    /**
+     * Ends a drag started by {@link #onItemDragged(int, int)} and persists its move, if any.
+     */
+    public void onItemDropped() {
+        dragCancelled = false;
+        if (!dragging) {
+            return;
+        }
+        dragging = false;
+        if (projectionFrom == projectionTo) {
+            projectionFrom = projectionTo = RecyclerView.NO_POSITION;
+            return;
+        }
+        // The projection stays until the change set of the move arrives. Until then getItem() returns the displayed
+        // order, in which the dragged item is at projectionTo.
+        final T item = getItem(projectionTo);
+        final T previous = projectionTo > 0 ? getItem(projectionTo - 1) : null;
+        if (item == null) {
+            projectionFrom = projectionTo = RecyclerView.NO_POSITION;
+            resync();
+            return;
+        }
+        writeMove(getObjectId(item), projectionFrom,
+                previous != null ? getObjectId(previous) : null,
+                projectionTo > 0 ? toBackingIndex(projectionTo - 1) : -1);
+    }
+
+    /**
+     * Maps a displayed position to the index in the backing list while a dragged row is displayed elsewhere.
+     */
+    private int toBackingIndex(int position) {
+        if (projectionFrom == projectionTo) {
+            return position;
+        }
+        if (position == projectionTo) {
+            return projectionFrom;
+        }
+        if (projectionFrom < projectionTo && position >= projectionFrom && position < projectionTo) {
+            return position + 1;
+        }
+        if (projectionFrom > projectionTo && position > projectionTo && position <= projectionFrom) {
+            return position - 1;
+        }
+        return position;
+    }
+
+    @Nullable
+    String getItemTextAt(int position) {
+        final T item = getItem(position);
+        return item != null && RealmObject.isValid(item) ? getItemText(item) : null;
+    }
+
+    private RowStates readRowStates() {
+        return readRowStates(items, 0, items.isValid() ? items.size() : 0);
+    }
+
+    private RowStates readRowStates(RealmList<T> list, int start, int end) {
+        final int last = Math.min(end, list.isValid() ? list.size() : 0);
+        final RowStates states = new RowStates(Math.max(0, last - start));
+        for (int i = start; i < last; i++) {
+            final T item = list.get(i);
+            states.add(getItemKey(item), getItemContentHash(item));
+        }
+        return states;
+    }
+
+    /**
+     * Reads the rows from {@code start} on a background Realm and makes them the window, unless the list changes
+     * in the meantime.
+     */
+    private void loadWindow(final int start) {
+        windowLoading = true;
+        final int generation = diffGeneration;
+        final int count = rowCount;
+        DIFF_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                RowStates states = null;
+                final Realm realm = Realm.getDefaultInstance();
+                try {
+                    final RealmList<T> list = findList(realm);
+                    if (list != null && list.size() == count) {
+                        states = readRowStates(list, start, start + WINDOW_SIZE);
+                    }
+                } finally {
+                    realm.close();
+                }
+                final RowStates loaded = states;
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        windowLoading = false;
+                        if (!paged || generation != diffGeneration || projectionFrom != RecyclerView.NO_POSITION
+                                || !items.isValid()) {
+                            // Changed in the meantime, the next scroll loads it again.
+                            return;
+                        }
+                        if (loaded != null && (loaded.size() == 0 || loaded.getKey(0) == getItemKey(items.get(start)))) {
+                            moveWindow(start, loaded);
+                        } else {
+                            // The background Realm is at another version than this one.
+                            moveWindow(start, readRowStates(items, start, start + WINDOW_SIZE));
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Makes {@code states}, the rows from {@code start} on, the window. Rows that are in the window already keep their
+     * state and id, so none of the bound rows changes id under the RecyclerView.
+     */
+    private void moveWindow(int start, RowStates states) {
+        final int end = start + states.size();
+        final int windowEnd = windowStart + rowStates.size();
+        if (end <= windowStart || start >= windowEnd) {
+            // Nothing in common, none of the rows in the window is displayed anymore.
+            windowStart = start;
+            rowStates = states;
+            return;
+        }
+        if (windowEnd > end) {
+            rowStates.remove(end - windowStart, windowEnd - end);
+        }
+        if (start > windowStart) {
+            rowStates.remove(0, start - windowStart);
+            windowStart = start;
+        }
+        final int prepended = windowStart - start;
+        for (int i = 0; i < prepended; i++) {
+            rowStates.insert(i, states.getKey(i), states.getHash(i));
+        }
+        windowStart = start;
+        for (int i = windowStart + rowStates.size(); i < end; i++) {
+            rowStates.add(states.getKey(i - start), states.getHash(i - start));
+        }
+    }
+
+    /**
+     * Adds the rows up to {@code position} to the window, for a row that is bound before the window has caught up
+     * with scrolling. Only reads the rows in between, unless the list jumped far away from the window.
+     */
+    private void coverPosition(int position) {
+        final int windowEnd = windowStart + rowStates.size();
+        if (position < 0 || position >= rowCount || (position >= windowStart && position < windowEnd)
+                || !items.isValid()) {
+            return;
+        }
+        if (position < windowStart - WINDOW_SIZE || position >= windowEnd + WINDOW_SIZE) {
+            final int start = Math.max(0, Math.min(position - WINDOW_SIZE / 2, rowCount - WINDOW_SIZE));
+            windowStart = start;
+            rowStates = readDisplayedRowStates(start, start + WINDOW_SIZE);
+            return;
+        }
+        if (position < windowStart) {
+            final RowStates states = readDisplayedRowStates(position, windowStart);
+            for (int i = 0; i < states.size(); i++) {
+                rowStates.insert(i, states.getKey(i), states.getHash(i));
+            }
+            windowStart = position;
+        } else {
+            final RowStates states = readDisplayedRowStates(windowEnd, position + 1);
+            for (int i = 0; i < states.size(); i++) {
+                rowStates.add(states.getKey(i), states.getHash(i));
+            }
+        }
+    }
+
+    /**
+     * Like {@link #readRowStates(RealmList, int, int)}, but in the displayed order while a dragged row is displayed
+     * elsewhere.
+     */
+    private RowStates readDisplayedRowStates(int start, int end) {
+        final RowStates states = new RowStates(Math.max(0, end - start));
+        for (int i = start; i < end; i++) {
+            final T item = getItem(i);
+            if (item == null) {
+                break;
+            }
+            states.add(getItemKey(item), getItemContentHash(item));
+        }
+        return states;
+    }
+
+    /**
+     * Shrinks the window back to {@link #WINDOW_SIZE} rows around the visible ones, after inserts or
+     * {@link #coverPosition(int)} made it larger.
+     */
+    private void trimWindow() {
+        if (rowStates.size() <= WINDOW_SIZE) {
+            return;
+        }
+        final int windowEnd = windowStart + rowStates.size();
+        final int start = Math.max(windowStart, Math.min(visibleCenter - WINDOW_SIZE / 2, windowEnd - WINDOW_SIZE));
+        final int end = start + WINDOW_SIZE;
+        rowStates.remove(end - windowStart, windowEnd - end);
+        rowStates.remove(0, start - windowStart);
+        windowStart = start;
+    }
+
+    private void applyChanges(OrderedCollectionChangeSet changeSet) {
+        if (projectionFrom != RecyclerView.NO_POSITION) {
+            // The rows are displayed in the dragged order. Let the diff put them where the data has them: once the
+            // dropped move has been written that changes nothing, during a drag it rolls the drag back.
+            dragCancelled = dragging;
+            dragging = false;
+            projectionFrom = projectionTo = RecyclerView.NO_POSITION;
+            if (items.isValid()) {
+                resync();
+                return;
+            }
+        }
+        if (!items.isValid()) {
+            diffGeneration++;
+            diffPending = false;
+            rowStates.clear();
+            windowStart = 0;
+            rowCount = 0;
+            notifyDataSetChanged();
+            return;
+        }
+        if (changeSet == null || diffPending) {
+            // Either Realm doesn't know what changed, or the displayed state is already behind the data.
+            resync();
+            return;
+        }
+        diffGeneration++;
+        if (paged) {
+            applyWindowChanges(changeSet);
+            return;
+        }
+        final OrderedCollectionChangeSet.Range[] deletions = changeSet.getDeletionRanges();
+        final OrderedCollectionChangeSet.Range[] insertions = changeSet.getInsertionRanges();
+        if (!applyMove(deletions, insertions)) {
+            // Deletions have to be notified in reverse order, insertions in order.
+            for (int i = deletions.length - 1; i >= 0; i--) {
+                final OrderedCollectionChangeSet.Range range = deletions[i];
+                rowStates.remove(range.startIndex, range.length);
+                notifyItemRangeRemoved(range.startIndex, range.length);
+            }
+            for (OrderedCollectionChangeSet.Range range : insertions) {
+                for (int i = range.startIndex; i < range.startIndex + range.length; i++) {
+                    final T item = items.get(i);
+                    rowStates.insert(i, getItemKey(item), getItemContentHash(item));
+                }
+                notifyItemRangeInserted(range.startIndex, range.length);
+            }
+        }
+        for (OrderedCollectionChangeSet.Range range : changeSet.getChangeRanges()) {
+            for (int i = range.startIndex; i < range.startIndex + range.length; i++) {
+                updateRowIfChanged(i);
+            }
+        }
+    }
+
+    private void applyWindowChanges(OrderedCollectionChangeSet changeSet) {
+        final OrderedCollectionChangeSet.Range[] deletions = changeSet.getDeletionRanges();
+        for (int i = deletions.length - 1; i >= 0; i--) {
+            final OrderedCollectionChangeSet.Range range = deletions[i];
+            final int end = range.startIndex + range.length;
+            final int windowedStart = Math.max(range.startIndex, windowStart);
+            final int windowedEnd = Math.min(end, windowStart + rowStates.size());
+            if (windowedEnd > windowedStart) {
+                rowStates.remove(windowedStart - windowStart, windowedEnd - windowedStart);
+            }
+            // Rows removed in front of the window move it up, and the visible rows with it.
+            windowStart -= Math.max(0, Math.min(end, windowStart) - range.startIndex);
+            visibleCenter -= Math.max(0, Math.min(end, visibleCenter) - range.startIndex);
+            rowCount -= range.length;
+            notifyItemRangeRemoved(range.startIndex, range.length);
+        }
+        for (OrderedCollectionChangeSet.Range range : changeSet.getInsertionRanges()) {
+            if (range.startIndex <= visibleCenter) {
+                visibleCenter += range.length;
+            }
+            if (range.startIndex < windowStart) {
+                windowStart += range.length;
+            } else if (range.startIndex <= windowStart + rowStates.size()) {
+                for (int i = range.startIndex; i < range.startIndex + range.length; i++) {
+                    final T item = items.get(i);
+                    rowStates.insert(i - windowStart, getItemKey(item), getItemContentHash(item));
+                }
+            }
+            rowCount += range.length;
+            notifyItemRangeInserted(range.startIndex, range.length);
+        }
+        final int windowEnd = windowStart + rowStates.size();
+        for (OrderedCollectionChangeSet.Range range : changeSet.getChangeRanges()) {
+            final int end = range.startIndex + range.length;
+            final int start = Math.max(range.startIndex, windowStart);
+            final int windowedEnd = Math.min(end, windowEnd);
+            for (int i = start; i < windowedEnd; i++) {
+                updateRowIfChanged(i);
+            }
+            // Rows outside of the window can still be cached by the RecyclerView. There is no state to compare them
+            // to, so rebind them.
+            if (range.startIndex < windowStart) {
+                notifyItemRangeChanged(range.startIndex, Math.min(end, windowStart) - range.startIndex);
+            }
+            if (end > windowEnd) {
+                final int outsideStart = Math.max(range.startIndex, windowEnd);
+                notifyItemRangeChanged(outsideStart, end - outsideStart);
+            }
+        }
+        trimWindow();
+    }
+
+    /**
+     * Brings the displayed rows in line with the data when there is no change set to apply.
+     */
+    private void resync() {
+        if (!paged) {
+            dispatchDiff();
+            return;
+        }
+        diffGeneration++;
+        rowCount = items.size();
+        windowStart = Math.max(0, Math.min(windowStart, rowCount - WINDOW_SIZE));
+        rowStates = readRowStates(items, windowStart, windowStart + WINDOW_SIZE);
+        notifyDataSetChanged();
+    }
+
+    /**
+     * {@link RealmList#move(int, int)} is reported as one deletion and one insertion. Animate that as a move when
+     * it is the same item, instead of removing one row and inserting another.
+     */
+    private boolean applyMove(OrderedCollectionChangeSet.Range[] deletions,
+                              OrderedCollectionChangeSet.Range[] insertions) {
+        if (deletions.length != 1 || insertions.length != 1 || deletions[0].length != 1 || insertions[0].length != 1) {
+            return false;
+        }
+        final int fromPosition = deletions[0].startIndex;
+        final int toPosition = insertions[0].startIndex;
+        if (rowStates.getKey(fromPosition) != getItemKey(items.get(toPosition))) {
+            return false;
+        }
+        rowStates.move(fromPosition, toPosition);
+        notifyItemMoved(fromPosition, toPosition);
+        // Modifications of a moved item are not part of the change ranges.
+        updateRowIfChanged(toPosition);
+        return true;
+    }
+
+    private void updateRowIfChanged(int position) {
+        final T item = items.get(position);
+        final long key = getItemKey(item);
+        final int hash = getItemContentHash(item);
+        final int offset = position - windowStart;
+        if (key != rowStates.getKey(offset) || hash != rowStates.getHash(offset)) {
+            rowStates.setKey(offset, key);
+            rowStates.setHash(offset, hash);
+            notifyItemChanged(position);
+        }
+    }
+
+    /**
+     * Diffs the displayed rows against the current data on a background thread and applies the result. The new
+     * state is read on the UI thread, which only touches keys and content, not views.
+     */
+    private void dispatchDiff() {
+        final RowStates oldStates = new RowStates(rowStates);
+        final RowStates newStates = readRowStates();
+        final int generation = ++diffGeneration;
+        diffPending = true;
+        DIFF_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new RowStatesDiff(oldStates, newStates));
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != diffGeneration) {
+                            return;
+                        }
+                        diffPending = false;
+                        rowStates = newStates;
+                        result.dispatchUpdatesTo(CommonAdapter.this);
+                    }
+                });
+            }
+        });
     }
 
     @Override
     public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
-        View rowItem = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_row, parent, false);
-        return new ItemViewHolder(rowItem, this);
+        // Normally taken from the prewarmed RowPool, this is only reached when it runs out.
+        return new ItemViewHolder(RowPool.inflate(parent), this);
     }
 
     @Override
     public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
         final ItemViewHolder itemViewHolder = (ItemViewHolder) holder;
+        itemViewHolder.setAdapter(this);
         itemViewHolder.reset();
         itemViewHolder.resetBackgroundColor();
         if (onFirstItemUpdateListener != null && position == 0) {
@@ -55,16 +772,29 @@ public class CommonAdapter<T extends RealmModel> extends RealmRecyclerViewAdapte
         }
     }
 
-    protected void moveItems(int fromPosition, int toPosition) {
-        if (fromPosition < toPosition) {
-            for (int i = fromPosition; i < toPosition; i++) {
-                Collections.swap(getData(), i, i + 1);
-            }
-        } else {
-            for (int i = fromPosition; i > toPosition; i--) {
-                Collections.swap(getData(), i, i - 1);
-            }
+    /**
+     * Rows in the shared {@link RowPool} outlive this adapter and its activity, so they must not keep referencing it.
+     * Also called for the attached rows when the adapter is swapped out, before they go into the pool.
+     */
+    @Override
+    public void onViewRecycled(RecyclerView.ViewHolder holder) {
+        super.onViewRecycled(holder);
+        ((ItemViewHolder) holder).setAdapter(null);
+    }
+
+    /**
+     * Moves an item within the given list. A single {@link RealmList#move(int, int)} is one list mutation and
+     * one sync instruction, however far apart the two positions are. Must be called inside a transaction.
+     */
+    protected static <E extends RealmModel> void moveItems(RealmList<E> items, int fromPosition, int toPosition) {
+        if (fromPosition == toPosition) {
+            return;
         }
+        items.move(fromPosition, toPosition);
+    }
+
+    protected static boolean isInRange(RealmList<?> items, int position) {
+        return items != null && position >= 0 && position < items.size();
     }
 
     public void setOnFirstItemUpdateListener(OnFirstItemUpdateListener onFirstItemUpdateListener) {
@@ -74,4 +804,35 @@ public class CommonAdapter<T extends RealmModel> extends RealmRecyclerViewAdapte
     public interface OnFirstItemUpdateListener {
         void updated(RecyclerView.ViewHolder viewHolder);
     }
+
+    private static class RowStatesDiff extends DiffUtil.Callback {
+
+        private final RowStates oldStates;
+        private final RowStates newStates;
+
+        RowStatesDiff(RowStates oldStates, RowStates newStates) {
+            this.oldStates = oldStates;
+            this.newStates = newStates;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldStates.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newStates.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldStates.getKey(oldItemPosition) == newStates.getKey(newItemPosition);
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldStates.getHash(oldItemPosition) == newStates.getHash(newItemPosition);
+        }
+    }
 }
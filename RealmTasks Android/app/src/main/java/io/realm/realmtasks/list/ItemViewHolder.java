@@ -21,10 +21,8 @@ import android.graphics.Paint;
 import android.support.annotation.ColorInt;
 import android.support.v4.content.ContextCompat;
 import android.support.v7.widget.RecyclerView;
-import android.text.SpannableStringBuilder;
-import android.text.Spanned;
+import android.text.Spannable;
 import android.text.TextUtils;
-import android.text.style.CharacterStyle;
 import android.text.style.ForegroundColorSpan;
 import android.text.style.StrikethroughSpan;
 import android.view.View;
@@ -61,7 +59,14 @@ public class ItemViewHolder extends RecyclerView.ViewHolder {
     private final TextView badge;
     private final TextView text;
     private final TextView metadata;
-    private final RecyclerView.Adapter adapter;
+    // The adapter the row is currently bound by, null while it is in the RowPool. Rows are shared between the adapters
+    // of both screens.
+    private RecyclerView.Adapter adapter;
+    private final int textRightMargin;
+    private final int editTextRightMargin;
+    private boolean narrowRightMargins;
+    // Reused on every frame of a swipe, see setStrikeThroughRatio().
+    private final StrikeThroughSpans strikeThroughSpans;
     private boolean completed;
     private boolean shouldChangeBackgroundColor;
     private boolean shouldChangeTextColor;
@@ -82,13 +87,40 @@ public class ItemViewHolder extends RecyclerView.ViewHolder {
         cellCompletedBackgroundColor = ContextCompat.getColor(itemView.getContext(), R.color.cell_completed_background_color);
         cellDefaultColor = ContextCompat.getColor(itemView.getContext(), R.color.cell_default_color);
         metadataCellCompletedColor = ContextCompat.getColor(itemView.getContext(), R.color.cell_default_metadata_color);
+        strikeThroughSpans = new StrikeThroughSpans(new StrikethroughSpan(),
+                new ForegroundColorSpan(cellCompletedColor), new ForegroundColorSpan(cellDefaultColor));
         shouldChangeBackgroundColor = true;
         shouldChangeTextColor = true;
         metadataRow.setVisibility(View.GONE);
         previousFirstLength = -1;
+        textRightMargin = ((LinearLayout.LayoutParams) text.getLayoutParams()).rightMargin;
+        editTextRightMargin = ((LinearLayout.LayoutParams) editText.getLayoutParams()).rightMargin;
         this.adapter = adapter;
     }
 
+    public void setAdapter(RecyclerView.Adapter adapter) {
+        this.adapter = adapter;
+    }
+
+    /**
+     * Reduces the right margins of the text to a fifth, for rows without a badge. Always relative to the margins of
+     * the layout, however often the row is bound.
+     */
+    public void setNarrowRightMargins(boolean narrow) {
+        if (narrow == narrowRightMargins) {
+            return;
+        }
+        narrowRightMargins = narrow;
+        setRightMargin(text, narrow ? (int) (textRightMargin * 0.2) : textRightMargin);
+        setRightMargin(editText, narrow ? (int) (editTextRightMargin * 0.2) : editTextRightMargin);
+    }
+
+    private static void setRightMargin(View view, int rightMargin) {
+        final LinearLayout.LayoutParams layoutParams = (LinearLayout.LayoutParams) view.getLayoutParams();
+        layoutParams.rightMargin = rightMargin;
+        view.setLayoutParams(layoutParams);
+    }
+
     private int generateBackgroundColor() {
         if (adapter != null && adapter instanceof TouchHelperAdapter) {
             return ((TouchHelperAdapter) adapter).generatedRowColor(getAdapterPosition());
@@ -277,32 +309,32 @@ public class ItemViewHolder extends RecyclerView.ViewHolder {
 
     public void setStrikeThroughRatio(float strikeThroughRatio) {
         final CharSequence text = this.text.getText();
-        final int textLength = text.length();
-        int firstLength = (int) (textLength * strikeThroughRatio);
-        if (firstLength > textLength) {
-            firstLength = textLength;
-        } else if (firstLength == textLength - 1) {
-            firstLength = textLength;
-        }
+        final int firstLength = StrikeThroughSpans.getFirstLength(text.length(), strikeThroughRatio);
         if (firstLength == previousFirstLength) {
             return;
         }
+        if (previousFirstLength == -1) {
+            // First frame of the swipe: make the text spannable once. Later frames only move the preallocated spans
+            // around, which neither allocates nor builds a new text layout.
+            this.text.setPaintFlags(this.text.getPaintFlags() & ~Paint.STRIKE_THRU_TEXT_FLAG);
+            if (text instanceof Spannable) {
+                clearStrikeThrough();
+            } else {
+                this.text.setText(text, TextView.BufferType.SPANNABLE);
+            }
+        }
         previousFirstLength = firstLength;
-        final int appendedLength = textLength - firstLength;
-        final SpannableStringBuilder stringBuilder = new SpannableStringBuilder(text, 0, textLength);
-        stringBuilder.clearSpans();
-        this.text.setPaintFlags(this.text.getPaintFlags() & ~Paint.STRIKE_THRU_TEXT_FLAG);
-        final CharacterStyle firstCharStyle, secondCharStyle;
-        if (completed) {
-            firstCharStyle = new ForegroundColorSpan(cellCompletedColor);
-            secondCharStyle = new StrikethroughSpan();
-        } else {
-            firstCharStyle = new StrikethroughSpan();
-            secondCharStyle = new ForegroundColorSpan(cellDefaultColor);
+        strikeThroughSpans.apply((Spannable) this.text.getText(), firstLength, completed);
+    }
+
+    /**
+     * Removes the spans added by {@link #setStrikeThroughRatio(float)}.
+     */
+    public void clearStrikeThrough() {
+        final CharSequence text = this.text.getText();
+        if (text instanceof Spannable) {
+            strikeThroughSpans.remove((Spannable) text);
         }
-        stringBuilder.setSpan(firstCharStyle, 0, firstLength, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-        stringBuilder.setSpan(secondCharStyle, textLength - appendedLength, textLength, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-        this.text.setText(stringBuilder);
     }
 
     public static class ColorHelper {
@@ -359,5 +391,51 @@ public class ItemViewHolder extends RecyclerView.ViewHolder {
             final int color = 0xFF000000 | (red << 16) | (green << 8) | blue;
             return color;
         }
+
+        /**
+         * The row colors of one palette. The channels of the palette colors are split up once, so resolving a row
+         * color is an interpolation between two of them, without any allocation when the number of rows changes.
+         */
+        public static class Gradient {
+
+            private final int[] reds;
+            private final int[] greens;
+            private final int[] blues;
+            private final double step;
+
+            public Gradient(int[] targetColors) {
+                reds = new int[targetColors.length];
+                greens = new int[targetColors.length];
+                blues = new int[targetColors.length];
+                for (int i = 0; i < targetColors.length; i++) {
+                    reds[i] = (targetColors[i] >> 16) & 0xFF;
+                    greens[i] = (targetColors[i] >> 8) & 0xFF;
+                    blues[i] = targetColors[i] & 0xFF;
+                }
+                step = 1.0 / (targetColors.length - 1);
+            }
+
+            /**
+             * Same result as {@link ColorHelper#getColor(int[], int, int)}.
+             */
+            public int getColor(int index, int size) {
+                if (size < 13) {
+                    size = 13;
+                }
+                if (index < 0) {
+                    index = 0;
+                } else if (index >= size) {
+                    index = size - 1;
+                }
+                final double fraction = (double) index / size;
+                final int colorIndex = (int) (fraction / step);
+                final double colorOffset = (fraction - (colorIndex * step)) / step;
+                final int red = (int) (reds[colorIndex] + (reds[colorIndex + 1] - reds[colorIndex]) * colorOffset);
+                final int green = (int) (greens[colorIndex]
+                        + (greens[colorIndex + 1] - greens[colorIndex]) * colorOffset);
+                final int blue = (int) (blues[colorIndex] + (blues[colorIndex + 1] - blues[colorIndex]) * colorOffset);
+                return 0xFF000000 | (red << 16) | (green << 8) | blue;
+            }
+        }
     }
 }
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.list;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.format.DateFormat;
+import android.text.format.DateUtils;
+import android.util.LruCache;
+
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Caches the strings returned by {@link DateUtils#getRelativeDateTimeString} for task dates.
+ * <p>
+ * With a resolution of one day the formatted string depends on the date itself, the current day, the locale, the time
+ * zone and the 12/24-hour setting, so the whole cache is dropped when any of these change. On top of that the string
+ * switches between the relative and the absolute form once the date is a week away, which happens at any time of day,
+ * so every entry also expires when its date crosses that boundary.
+ * <p>
+ * While started, a single ticker fires at midnight and a receiver listens for clock and time zone changes, so the rows
+ * that are on screen can be rebound. While stopped, the time zone and 12/24-hour setting are checked on every lookup
+ * instead.
+ */
+public class RelativeDateCache {
+
+    private static final int MAX_SIZE = 256;
+
+    private final Context context;
+    private final LruCache<Long, Entry> cache = new LruCache<>(MAX_SIZE);
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable ticker = new Runnable() {
+        @Override
+        public void run() {
+            invalidate();
+            if (onDayChangedListener != null) {
+                onDayChangedListener.run();
+            }
+            scheduleTicker();
+        }
+    };
+    private final BroadcastReceiver timeChangedReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            // The clock, the time zone or the 12/24-hour setting changed, same as a new day for the rows.
+            ticker.run();
+        }
+    };
+    private Runnable onDayChangedListener;
+    private Locale locale;
+    private String timeZoneId;
+    private boolean is24HourFormat;
+    private long nextMidnight;
+    private boolean started;
+
+    public RelativeDateCache(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    public CharSequence format(long time) {
+        final long now = System.currentTimeMillis();
+        if (now >= nextMidnight || !Locale.getDefault().equals(locale) || (!started && settingsChanged())) {
+            invalidate();
+        }
+        Entry entry = cache.get(time);
+        if (entry == null || now >= entry.validUntil) {
+            final CharSequence formatted = DateUtils.getRelativeDateTimeString(
+                    context,
+                    time,
+                    DateUtils.DAY_IN_MILLIS,
+                    DateUtils.WEEK_IN_MILLIS, 0);
+            entry = new Entry(formatted, computeValidUntil(time, now));
+            cache.put(time, entry);
+        }
+        return entry.formatted;
+    }
+
+    /**
+     * Starts calling {@code listener} on the main thread every time the day changes.
+     */
+    public void start(Runnable listener) {
+        if (!started) {
+            final IntentFilter filter = new IntentFilter(Intent.ACTION_TIME_CHANGED);
+            filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+            context.registerReceiver(timeChangedReceiver, filter);
+        }
+        onDayChangedListener = listener;
+        started = true;
+        // Nothing was watching for changes while stopped.
+        invalidate();
+        scheduleTicker();
+    }
+
+    public void stop() {
+        if (started) {
+            context.unregisterReceiver(timeChangedReceiver);
+        }
+        started = false;
+        onDayChangedListener = null;
+        handler.removeCallbacks(ticker);
+    }
+
+    private boolean settingsChanged() {
+        return is24HourFormat != DateFormat.is24HourFormat(context)
+                || !TimeZone.getDefault().getID().equals(timeZoneId);
+    }
+
+    private void invalidate() {
+        cache.evictAll();
+        locale = Locale.getDefault();
+        timeZoneId = TimeZone.getDefault().getID();
+        is24HourFormat = DateFormat.is24HourFormat(context);
+        nextMidnight = computeNextMidnight();
+    }
+
+    /**
+     * Returns when the string for {@code time} switches between the relative form, used while the date is less than a
+     * week away, and the absolute one.
+     */
+    private static long computeValidUntil(long time, long now) {
+        if (now < time - DateUtils.WEEK_IN_MILLIS) {
+            return time - DateUtils.WEEK_IN_MILLIS;
+        } else if (now < time + DateUtils.WEEK_IN_MILLIS) {
+            return time + DateUtils.WEEK_IN_MILLIS;
+        } else {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private void scheduleTicker() {
+        handler.removeCallbacks(ticker);
+        if (started) {
+            // A little after midnight so the day has surely changed when the rows are rebound.
+            handler.postDelayed(ticker, computeNextMidnight() - System.currentTimeMillis() + 1000);
+        }
+    }
+
+    private static long computeNextMidnight() {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        return calendar.getTimeInMillis();
+    }
+
+    private static class Entry {
+
+        final CharSequence formatted;
+        final long validUntil;
+
+        Entry(CharSequence formatted, long validUntil) {
+            this.formatted = formatted;
+            this.validUntil = validUntil;
+        }
+    }
+}
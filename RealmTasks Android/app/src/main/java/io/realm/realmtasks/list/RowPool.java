@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.list;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.annotation.NonNull;
+import android.support.v4.view.AsyncLayoutInflater;
+import android.support.v7.view.ContextThemeWrapper;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import io.realm.realmtasks.R;
+
+/**
+ * App-wide pool of {@code item_row} view holders, shared by the RecyclerViews of the list and task screens, so rows
+ * survive navigating between them.
+ * <p>
+ * The rows are inflated with the application context, wrapped in the app theme, so pooled rows never keep an
+ * activity alive. {@link #prewarm(RecyclerView)} fills the pool with rows inflated on a background thread once the
+ * main thread is idle, so that opening a list takes its rows from the pool instead of inflating them.
+ */
+public class RowPool {
+
+    // CommonAdapter only has the default view type.
+    private static final int VIEW_TYPE = 0;
+    private static final int MAX_ROWS = 24;
+    private static final int PREWARM_ROWS = 16;
+
+    private static RecyclerView.RecycledViewPool pool;
+    private static boolean prewarmed;
+
+    // Only used to create holders for prewarmed rows: Adapter.createViewHolder() is what assigns the view type the
+    // pool sorts them by.
+    private static View inflatedRow;
+    private static final RecyclerView.Adapter<ItemViewHolder> FACTORY = new RecyclerView.Adapter<ItemViewHolder>() {
+        @Override
+        public ItemViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return new ItemViewHolder(inflatedRow, null);
+        }
+
+        @Override
+        public void onBindViewHolder(ItemViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return 0;
+        }
+    };
+
+    private RowPool() {
+    }
+
+    public static RecyclerView.RecycledViewPool get() {
+        if (pool == null) {
+            pool = new RecyclerView.RecycledViewPool();
+            pool.setMaxRecycledViews(VIEW_TYPE, MAX_ROWS);
+        }
+        return pool;
+    }
+
+    /**
+     * Inflates a row on the calling thread, for when the pool is empty.
+     */
+    static View inflate(ViewGroup parent) {
+        return LayoutInflater.from(getThemedContext(parent.getContext())).inflate(R.layout.item_row, parent, false);
+    }
+
+    /**
+     * Fills the pool once per process, in the background after the main thread has become idle. {@code parent} is
+     * only used to create the layout params of the rows.
+     */
+    public static void prewarm(final RecyclerView parent) {
+        if (prewarmed) {
+            return;
+        }
+        prewarmed = true;
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                final AsyncLayoutInflater inflater = new AsyncLayoutInflater(getThemedContext(parent.getContext()));
+                final AsyncLayoutInflater.OnInflateFinishedListener listener =
+                        new AsyncLayoutInflater.OnInflateFinishedListener() {
+                            @Override
+                            public void onInflateFinished(@NonNull View view, int resid, ViewGroup parent) {
+                                inflatedRow = view;
+                                get().putRecycledView(FACTORY.createViewHolder(parent, VIEW_TYPE));
+                                inflatedRow = null;
+                            }
+                        };
+                for (int i = 0; i < PREWARM_ROWS; i++) {
+                    inflater.inflate(R.layout.item_row, parent, listener);
+                }
+                return false;
+            }
+        });
+    }
+
+    private static Context getThemedContext(Context context) {
+        return new ContextThemeWrapper(context.getApplicationContext(), R.style.AppTheme);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.list;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Mirror of the rows the RecyclerView currently displays: the key and a hash of the bound content of each row. Lets
+ * {@link CommonAdapter} skip re-binding rows whose content didn't change, and diff against what is on screen when
+ * Realm cannot tell what changed.
+ * <p>
+ * Keys identify the item and are not necessarily unique: a list can be linked twice until the duplicate is removed,
+ * and tasks without an id yet are keyed by their text. Every row therefore also gets an id that is unique among the
+ * rows, which is what the RecyclerView is given as stable id. It is the key itself for the first row with that key,
+ * and a key mixed with a counter for the others.
+ */
+public class RowStates {
+
+    private long[] keys;
+    private long[] ids;
+    private int[] hashes;
+    private int size;
+    private final Set<Long> usedIds;
+
+    public RowStates(int capacity) {
+        keys = new long[Math.max(capacity, 16)];
+        ids = new long[keys.length];
+        hashes = new int[keys.length];
+        usedIds = new HashSet<>();
+    }
+
+    public RowStates(RowStates other) {
+        keys = Arrays.copyOf(other.keys, other.keys.length);
+        ids = Arrays.copyOf(other.ids, other.ids.length);
+        hashes = Arrays.copyOf(other.hashes, other.hashes.length);
+        size = other.size;
+        usedIds = new HashSet<>(other.usedIds);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getKey(int position) {
+        return keys[position];
+    }
+
+    /**
+     * Returns the id of the row, unique among all rows.
+     */
+    public long getId(int position) {
+        return ids[position];
+    }
+
+    public int getHash(int position) {
+        return hashes[position];
+    }
+
+    public void setKey(int position, long key) {
+        if (keys[position] == key) {
+            return;
+        }
+        usedIds.remove(ids[position]);
+        keys[position] = key;
+        ids[position] = allocateId(key);
+    }
+
+    public void setHash(int position, int hash) {
+        hashes[position] = hash;
+    }
+
+    public void add(long key, int hash) {
+        insert(size, key, hash);
+    }
+
+    public void insert(int position, long key, int hash) {
+        insertRow(position, key, allocateId(key), hash);
+    }
+
+    public void remove(int position, int count) {
+        for (int i = position; i < position + count; i++) {
+            usedIds.remove(ids[i]);
+        }
+        removeRows(position, count);
+    }
+
+    public void move(int fromPosition, int toPosition) {
+        final long key = keys[fromPosition];
+        final long id = ids[fromPosition];
+        final int hash = hashes[fromPosition];
+        removeRows(fromPosition, 1);
+        insertRow(toPosition, key, id, hash);
+    }
+
+    public void clear() {
+        size = 0;
+        usedIds.clear();
+    }
+
+    private long allocateId(long key) {
+        long id = key;
+        for (long n = 1; !usedIds.add(id); n++) {
+            // Any bijective mix will do, it only has to spread the duplicates away from the keys of other items.
+            id = (key ^ n) * 0x9e3779b97f4a7c15L;
+        }
+        return id;
+    }
+
+    private void insertRow(int position, long key, long id, int hash) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        System.arraycopy(keys, position, keys, position + 1, size - position);
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        System.arraycopy(hashes, position, hashes, position + 1, size - position);
+        keys[position] = key;
+        ids[position] = id;
+        hashes[position] = hash;
+        size++;
+    }
+
+    private void removeRows(int position, int count) {
+        System.arraycopy(keys, position + count, keys, position, size - position - count);
+        System.arraycopy(ids, position + count, ids, position, size - position - count);
+        System.arraycopy(hashes, position + count, hashes, position, size - position - count);
+        size -= count;
+    }
+}
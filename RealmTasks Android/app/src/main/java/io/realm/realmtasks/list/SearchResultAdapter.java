@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.list;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.Collections;
+import java.util.List;
+
+import io.realm.realmtasks.R;
+import io.realm.realmtasks.data.SearchIndex;
+
+/**
+ * Rows for the results of a {@link SearchIndex} query, with the list of a task as its metadata.
+ */
+public class SearchResultAdapter extends RecyclerView.Adapter<ItemViewHolder> {
+
+    private List<SearchIndex.Result> results = Collections.emptyList();
+    private final OnResultClickListener onResultClickListener;
+
+    public interface OnResultClickListener {
+        void onResultClicked(SearchIndex.Result result);
+    }
+
+    public SearchResultAdapter(OnResultClickListener onResultClickListener) {
+        this.onResultClickListener = onResultClickListener;
+    }
+
+    public void setResults(List<SearchIndex.Result> results) {
+        // At most SearchIndex.MAX_RESULTS rows, not worth diffing.
+        this.results = results;
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public int getItemCount() {
+        return results.size();
+    }
+
+    @Override
+    public ItemViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        final View rowItem = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_row, parent, false);
+        final ItemViewHolder holder = new ItemViewHolder(rowItem, this);
+        rowItem.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                final int position = holder.getAdapterPosition();
+                if (position != RecyclerView.NO_POSITION) {
+                    onResultClickListener.onResultClicked(results.get(position));
+                }
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(ItemViewHolder holder, int position) {
+        holder.reset();
+        final SearchIndex.Result result = results.get(position);
+        holder.getText().setText(result.getText());
+        holder.setMetadataText(result.isList() ? null : result.getListTitle());
+        holder.setCompleted(result.isCompleted());
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.list;
+
+import android.text.Spannable;
+import android.text.Spanned;
+
+/**
+ * The spans that strike through the text of a row while it is swiped. They are allocated once per row and only moved
+ * around on the frames of a swipe, which neither allocates nor builds a new text layout.
+ */
+class StrikeThroughSpans {
+
+    private final Object strikethroughSpan;
+    private final Object completedColorSpan;
+    private final Object defaultColorSpan;
+
+    StrikeThroughSpans(Object strikethroughSpan, Object completedColorSpan, Object defaultColorSpan) {
+        this.strikethroughSpan = strikethroughSpan;
+        this.completedColorSpan = completedColorSpan;
+        this.defaultColorSpan = defaultColorSpan;
+    }
+
+    /**
+     * Returns how many characters from the start change their look at the given ratio of the swipe. The last
+     * character changes together with the one before it.
+     */
+    static int getFirstLength(int textLength, float ratio) {
+        final int firstLength = (int) (textLength * ratio);
+        return firstLength >= textLength - 1 ? textLength : firstLength;
+    }
+
+    /**
+     * Strikes through the first {@code firstLength} characters, or un-strikes them if the row is completed.
+     */
+    void apply(Spannable spannable, int firstLength, boolean completed) {
+        final int textLength = spannable.length();
+        if (completed) {
+            setSpan(spannable, completedColorSpan, 0, firstLength);
+            setSpan(spannable, strikethroughSpan, firstLength, textLength);
+        } else {
+            setSpan(spannable, strikethroughSpan, 0, firstLength);
+            setSpan(spannable, defaultColorSpan, firstLength, textLength);
+        }
+    }
+
+    void remove(Spannable spannable) {
+        spannable.removeSpan(strikethroughSpan);
+        spannable.removeSpan(completedColorSpan);
+        spannable.removeSpan(defaultColorSpan);
+    }
+
+    private static void setSpan(Spannable spannable, Object span, int start, int end) {
+        // Exclusive spans can't be empty, an empty range means the span isn't needed at the moment.
+        if (start == end) {
+            spannable.removeSpan(span);
+        } else {
+            spannable.setSpan(span, start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+    }
+}
@@ -17,24 +17,51 @@
 package io.realm.realmtasks.list;
 
 import android.content.Context;
-import android.support.annotation.NonNull;
 import android.support.v7.widget.RecyclerView;
-import android.text.format.DateUtils;
-import android.view.View;
-import android.widget.LinearLayout;
 import android.widget.RelativeLayout;
 import android.widget.TextView;
 
 import java.util.Date;
+import java.util.UUID;
 
-import io.realm.OrderedRealmCollection;
 import io.realm.Realm;
+import io.realm.RealmList;
+import io.realm.realmtasks.data.TaskCounters;
+import io.realm.realmtasks.metrics.TransactionMetrics;
 import io.realm.realmtasks.model.Task;
+import io.realm.realmtasks.model.TaskList;
 
 public class TaskAdapter extends CommonAdapter<Task> implements TouchHelperAdapter {
 
-    public TaskAdapter(Context context, OrderedRealmCollection<Task> items) {
-        super(context, items);
+    private final String listId;
+    private final ItemViewHolder.ColorHelper.Gradient rowColors =
+            new ItemViewHolder.ColorHelper.Gradient(ItemViewHolder.ColorHelper.taskColors);
+    // Id of the item added by the last pull, deleted again if the pull is reverted.
+    private String addedId;
+    private final RelativeDateCache relativeDates;
+    private final Runnable refreshDates = new Runnable() {
+        @Override
+        public void run() {
+            notifyItemRangeChanged(0, getItemCount());
+        }
+    };
+
+    public TaskAdapter(Context context, TaskList taskList) {
+        super(context, taskList.getItems());
+        listId = taskList.getId();
+        relativeDates = new RelativeDateCache(context);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        relativeDates.start(refreshDates);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        relativeDates.stop();
     }
 
     @Override
@@ -42,136 +69,191 @@ public class TaskAdapter extends CommonAdapter<Task> implements TouchHelperAdapt
         super.onBindViewHolder(holder, position);
         final ItemViewHolder itemViewHolder = (ItemViewHolder) holder;
         final Task task = getItem(position);
-        if (task.isValid()) {
+        if (task != null && task.isValid()) {
             final TextView text = itemViewHolder.getText();
             text.setText(task.getText());
 
             Date taskDate = task.getDate();
             if(taskDate != null) {
-                CharSequence naturalDateString = naturalDateFrom(taskDate);
+                CharSequence naturalDateString = relativeDates.format(taskDate.getTime());
                 itemViewHolder.setMetadataText(naturalDateString);
             } else {
                 itemViewHolder.setMetadataText(null);
             }
-            narrowRightMargin(text);
-            narrowRightMargin(itemViewHolder.getEditText());
+            itemViewHolder.setBadgeVisible(false);
+            itemViewHolder.setNarrowRightMargins(true);
             itemViewHolder.setCompleted(task.isCompleted());
         }
     }
 
-    private CharSequence naturalDateFrom(@NonNull Date taskDueDate) {
-        return DateUtils.getRelativeDateTimeString(
-                context,
-                taskDueDate.getTime(),
-                DateUtils.DAY_IN_MILLIS,
-                DateUtils.WEEK_IN_MILLIS, 0);
+    @Override
+    protected long getItemKey(Task task) {
+        final String id = task.getId();
+        if (id == null) {
+            // Created by a client that doesn't assign ids. Ids are never back-filled: two devices would each pick
+            // their own and the writes queued under the losing one would be dropped. Tasks with the same text still
+            // get separate row ids, see RowStates.
+            return hashKey(task.getText());
+        }
+        return hashKey(id);
+    }
+
+    @Override
+    protected String getItemText(Task task) {
+        return task.getText();
+    }
+
+    @Override
+    protected int getItemContentHash(Task task) {
+        final Date date = task.getDate();
+        int hash = task.getText().hashCode();
+        hash = 31 * hash + (task.isCompleted() ? 1 : 0);
+        hash = 31 * hash + (date != null ? date.hashCode() : 0);
+        return hash;
+    }
+
+    @Override
+    protected RealmList<Task> findList(Realm realm) {
+        final TaskList taskList = findTaskList(realm);
+        return taskList != null ? taskList.getItems() : null;
+    }
+
+    @Override
+    protected String getObjectId(Task task) {
+        return task.getId();
+    }
+
+    @Override
+    protected Task findObject(Realm realm, String id) {
+        return realm.where(Task.class).equalTo(Task.FIELD_ID, id).findFirst();
     }
 
-    private void narrowRightMargin(View view) {
-        final LinearLayout.LayoutParams layoutParams = (LinearLayout.LayoutParams) view.getLayoutParams();
-        layoutParams.rightMargin = (int) (layoutParams.rightMargin * 0.2);
+    private TaskList findTaskList(Realm realm) {
+        return realm.where(TaskList.class)
+                .equalTo(TaskList.FIELD_ID, listId)
+                .equalTo(TaskList.FIELD_DELETED, false)
+                .findFirst();
     }
 
     @Override
     public void onItemAdded() {
-        final Realm realm = Realm.getDefaultInstance();
-        realm.executeTransaction(new Realm.Transaction() {
+        final String id = UUID.randomUUID().toString();
+        addedId = id;
+        executeAsync(TransactionMetrics.Operation.ADD, new Realm.Transaction() {
             @Override
             public void execute(Realm realm) {
                 // TaskList might have been deleted, in that case, don't create any new.
-                if (getData().isValid()) {
+                final TaskList taskList = findTaskList(realm);
+                if (taskList != null) {
                     final Task task = realm.createObject(Task.class);
+                    task.setId(id);
                     task.setText("");
-                    getData().add(0, task);
+                    taskList.getItems().add(0, task);
+                    TaskCounters.adjust(taskList, 1, 1);
                 }
             }
         });
-        realm.close();
-    }
-
-    @Override
-    public void onItemMoved(final int fromPosition, final int toPosition) {
-        final Realm realm = Realm.getDefaultInstance();
-        realm.executeTransaction(new Realm.Transaction() {
-            @Override
-            public void execute(Realm realm) {
-                moveItems(fromPosition, toPosition);
-            }
-        });
-        realm.close();
     }
 
     @Override
     public void onItemCompleted(final int position) {
-        final Task task = getData().get(position);
-        final Realm realm = Realm.getDefaultInstance();
-        final int count = (int) getData().where().equalTo(Task.FIELD_COMPLETED, false).count();
-        realm.executeTransaction(new Realm.Transaction() {
+        final String id = getTaskId(position);
+        executeAsync(TransactionMetrics.Operation.COMPLETE, new Realm.Transaction() {
             @Override
             public void execute(Realm realm) {
+                final TaskList taskList = findTaskList(realm);
+                final RealmList<Task> items = taskList != null ? taskList.getItems() : null;
+                final int index = indexOf(realm, items, id, position);
+                if (index < 0) {
+                    return;
+                }
+                final Task task = items.get(index);
+                final int count = (int) items.where().equalTo(Task.FIELD_COMPLETED, false).count();
                 if (!task.isCompleted()) {
                     task.setCompleted(true);
-                    moveItems(position, count - 1);
+                    moveItems(items, index, count - 1);
+                    TaskCounters.adjust(taskList, -1, 0);
                 } else {
                     task.setCompleted(false);
-                    moveItems(position, count);
+                    moveItems(items, index, count);
+                    TaskCounters.adjust(taskList, 1, 0);
                 }
             }
         });
-        realm.close();
     }
 
     @Override
     public void onItemDismissed(final int position) {
-        final Realm realm = Realm.getDefaultInstance();
-        realm.executeTransaction(new Realm.Transaction() {
+        final String id = getTaskId(position);
+        executeAsync(TransactionMetrics.Operation.DISMISS, new Realm.Transaction() {
             @Override
             public void execute(Realm realm) {
-                final Task task = getData().get(position);
-                task.deleteFromRealm();
+                final TaskList taskList = findTaskList(realm);
+                deleteTask(taskList, indexOf(realm, taskList != null ? taskList.getItems() : null, id, position));
             }
         });
-        realm.close();
     }
 
     @Override
     public void onItemReverted() {
-        if (getData().size() == 0) {
+        final String id = addedId;
+        addedId = null;
+        if (id == null) {
             return;
         }
-        final Realm realm = Realm.getDefaultInstance();
-        realm.executeTransaction(new Realm.Transaction() {
+        executeAsync(TransactionMetrics.Operation.REVERT, new Realm.Transaction() {
             @Override
             public void execute(Realm realm) {
-                final Task task = getData().get(0);
-                task.deleteFromRealm();
+                final TaskList taskList = findTaskList(realm);
+                deleteTask(taskList, indexOf(realm, taskList != null ? taskList.getItems() : null, id, 0));
             }
         });
-        realm.close();
+    }
+
+    private String getTaskId(int position) {
+        final Task task = getItem(position);
+        return task != null ? task.getId() : null;
+    }
+
+    private static void deleteTask(TaskList taskList, int position) {
+        if (taskList == null || !isInRange(taskList.getItems(), position)) {
+            return;
+        }
+        final Task task = taskList.getItems().get(position);
+        TaskCounters.adjust(taskList, task.isCompleted() ? 0 : -1, -1);
+        task.deleteFromRealm();
     }
 
     @Override
     public int generatedRowColor(int row) {
-        return ItemViewHolder.ColorHelper.getColor(ItemViewHolder.ColorHelper.taskColors, row, getItemCount());
+        return rowColors.getColor(row, getItemCount());
     }
 
     @Override
     public void onItemChanged(final ItemViewHolder viewHolder) {
-        final Realm realm = Realm.getDefaultInstance();
         final int position = viewHolder.getAdapterPosition();
         if (position < 0) {
-            realm.close();
             return;
         }
-        realm.executeTransaction(new Realm.Transaction() {
+        final String id = getTaskId(position);
+        final String text = viewHolder.getText().getText().toString();
+        executeEdit(id != null ? id : String.valueOf(position), new Realm.Transaction() {
             @Override
             public void execute(Realm realm) {
-                Task task = getData().get(position);
-                task.setText(viewHolder.getText().getText().toString());
+                final RealmList<Task> items = findList(realm);
+                final int index = indexOf(realm, items, id, position);
+                if (index < 0) {
+                    return;
+                }
+                final Task task = items.get(index);
+                if (text.equals(task.getText())) {
+                    // Nothing changed, keep the date the server extracted.
+                    return;
+                }
+                task.setText(text);
                 task.setDate(null); // remove date on text change, server will set
                                     // new value if there is a value to be set.
             }
         });
-        realm.close();
     }
 }
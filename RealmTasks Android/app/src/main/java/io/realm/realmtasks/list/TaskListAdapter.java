@@ -22,14 +22,22 @@ import android.widget.Toast;
 
 import java.util.UUID;
 
-import io.realm.OrderedRealmCollection;
 import io.realm.Realm;
+import io.realm.RealmList;
 import io.realm.realmtasks.R;
+import io.realm.realmtasks.data.ListDeletion;
+import io.realm.realmtasks.metrics.TransactionMetrics;
 import io.realm.realmtasks.model.TaskList;
+import io.realm.realmtasks.model.TaskListList;
 
 public class TaskListAdapter extends CommonAdapter<TaskList> implements TouchHelperAdapter {
 
-    public TaskListAdapter(Context context, OrderedRealmCollection<TaskList> items) {
+    private final ItemViewHolder.ColorHelper.Gradient rowColors =
+            new ItemViewHolder.ColorHelper.Gradient(ItemViewHolder.ColorHelper.listColors);
+    // Id of the item added by the last pull, deleted again if the pull is reverted.
+    private String addedId;
+
+    public TaskListAdapter(Context context, RealmList<TaskList> items) {
         super(context, items);
     }
 
@@ -38,115 +46,161 @@ public class TaskListAdapter extends CommonAdapter<TaskList> implements TouchHel
         super.onBindViewHolder(holder, position);
         final ItemViewHolder itemViewHolder = (ItemViewHolder) holder;
         final TaskList taskList = getItem(position);
+        if (taskList == null || !taskList.isValid()) {
+            return;
+        }
         itemViewHolder.getText().setText(taskList.getText());
         itemViewHolder.setBadgeVisible(true);
-        final long badgeCount = taskList.getItems().where().equalTo(TaskList.FIELD_COMPLETED, false).count();
-        itemViewHolder.setBadgeCount((int) badgeCount);
+        itemViewHolder.setNarrowRightMargins(false);
+        itemViewHolder.setBadgeCount((int) taskList.getOpenCount());
         itemViewHolder.setCompleted(taskList.isCompleted());
     }
 
     @Override
-    public void onItemAdded() {
-        final Realm realm = Realm.getDefaultInstance();
-        realm.executeTransaction(new Realm.Transaction() {
-            @Override
-            public void execute(Realm realm) {
-                final TaskList taskList = new TaskList();
-                taskList.setId(UUID.randomUUID().toString());
-                taskList.setText("");
-                getData().add(0, taskList);
-            }
-        });
-        realm.close();
+    protected long getItemKey(TaskList taskList) {
+        return hashKey(taskList.getId());
+    }
+
+    @Override
+    protected String getItemText(TaskList taskList) {
+        return taskList.getText();
+    }
+
+    @Override
+    protected int getItemContentHash(TaskList taskList) {
+        int hash = taskList.getText().hashCode();
+        hash = 31 * hash + (taskList.isCompleted() ? 1 : 0);
+        hash = 31 * hash + (int) taskList.getOpenCount();
+        return hash;
     }
 
     @Override
-    public void onItemMoved(final int fromPosition, final int toPosition) {
-        final Realm realm = Realm.getDefaultInstance();
-        realm.executeTransaction(new Realm.Transaction() {
+    protected String getObjectId(TaskList taskList) {
+        return taskList.getId();
+    }
+
+    @Override
+    protected TaskList findObject(Realm realm, String id) {
+        return realm.where(TaskList.class).equalTo(TaskList.FIELD_ID, id).findFirst();
+    }
+
+    @Override
+    protected RealmList<TaskList> findList(Realm realm) {
+        final TaskListList taskListList = realm.where(TaskListList.class).findFirst();
+        return taskListList != null ? taskListList.getItems() : null;
+    }
+
+    @Override
+    public void onItemAdded() {
+        final String id = UUID.randomUUID().toString();
+        addedId = id;
+        executeAsync(TransactionMetrics.Operation.ADD, new Realm.Transaction() {
             @Override
             public void execute(Realm realm) {
-                moveItems(fromPosition, toPosition);
+                final RealmList<TaskList> items = findList(realm);
+                if (items != null) {
+                    final TaskList taskList = new TaskList();
+                    taskList.setId(id);
+                    taskList.setText("");
+                    items.add(0, taskList);
+                }
             }
         });
-        realm.close();
     }
 
     @Override
     public void onItemCompleted(final int position) {
         final TaskList taskList = getItem(position);
-        final Realm realm = Realm.getDefaultInstance();
-        final int count = (int) getData().where().equalTo(TaskList.FIELD_COMPLETED, false).count();
-        realm.executeTransaction(new Realm.Transaction() {
+        if (taskList == null) {
+            return;
+        }
+        if (!taskList.isCompleted() && !taskList.isCompletable()) {
+            Toast.makeText(context, R.string.no_item, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        final String id = taskList.getId();
+        executeAsync(TransactionMetrics.Operation.COMPLETE, new Realm.Transaction() {
             @Override
             public void execute(Realm realm) {
+                final RealmList<TaskList> items = findList(realm);
+                final int index = indexOf(realm, items, id, position);
+                if (index < 0) {
+                    return;
+                }
+                final TaskList taskList = items.get(index);
+                final int count = (int) items.where().equalTo(TaskList.FIELD_COMPLETED, false).count();
                 if (!taskList.isCompleted()) {
                     if (taskList.isCompletable()) {
                         taskList.setCompleted(true);
-                        moveItems(position, count - 1);
-                    } else {
-                        Toast.makeText(context, R.string.no_item, Toast.LENGTH_SHORT).show();
+                        moveItems(items, index, count - 1);
                     }
                 } else {
                     taskList.setCompleted(false);
-                    moveItems(position, count);
+                    moveItems(items, index, count);
                 }
             }
         });
-        realm.close();
     }
 
     @Override
     public void onItemDismissed(final int position) {
-        final Realm realm = Realm.getDefaultInstance();
-        realm.executeTransaction(new Realm.Transaction() {
+        final TaskList item = getItem(position);
+        if (item == null) {
+            return;
+        }
+        final String id = item.getId();
+        executeAsync(TransactionMetrics.Operation.DISMISS, new Realm.Transaction() {
             @Override
             public void execute(Realm realm) {
-                final TaskList taskList = getData().get(position);
-                taskList.getItems().deleteAllFromRealm();
-                taskList.deleteFromRealm();
+                final RealmList<TaskList> items = findList(realm);
+                final int index = indexOf(realm, items, id, position);
+                if (index >= 0) {
+                    ListDeletion.delete(realm, items.get(index));
+                }
             }
         });
-        realm.close();
     }
 
     @Override
     public void onItemReverted() {
-        if (getData().size() == 0) {
+        final String id = addedId;
+        addedId = null;
+        if (id == null) {
             return;
         }
-        final Realm realm = Realm.getDefaultInstance();
-        realm.executeTransaction(new Realm.Transaction() {
+        executeAsync(TransactionMetrics.Operation.REVERT, new Realm.Transaction() {
             @Override
             public void execute(Realm realm) {
-                final TaskList taskList = getData().get(0);
-                taskList.getItems().deleteAllFromRealm();
-                taskList.deleteFromRealm();
+                final RealmList<TaskList> items = findList(realm);
+                final int index = indexOf(realm, items, id, 0);
+                if (index >= 0) {
+                    ListDeletion.delete(realm, items.get(index));
+                }
             }
         });
-        realm.close();
     }
 
     @Override
     public int generatedRowColor(int row) {
-        return ItemViewHolder.ColorHelper.getColor(ItemViewHolder.ColorHelper.listColors, row, getItemCount());
+        return rowColors.getColor(row, getItemCount());
     }
 
     @Override
     public void onItemChanged(final ItemViewHolder viewHolder) {
-        final Realm realm = Realm.getDefaultInstance();
-        final int position = viewHolder.getAdapterPosition();
-        if (position < 0) {
-            realm.close();
+        final TaskList item = getItem(viewHolder.getAdapterPosition());
+        if (item == null) {
             return;
         }
-        realm.executeTransaction(new Realm.Transaction() {
+        final String id = item.getId();
+        final String text = viewHolder.getText().getText().toString();
+        executeEdit(id, new Realm.Transaction() {
             @Override
             public void execute(Realm realm) {
-                TaskList taskList = getItem(position);
-                taskList.setText(viewHolder.getText().getText().toString());
+                final TaskList taskList = realm.where(TaskList.class).equalTo(TaskList.FIELD_ID, id).findFirst();
+                if (taskList != null && !text.equals(taskList.getText())) {
+                    taskList.setText(text);
+                }
             }
         });
-        realm.close();
     }
 }
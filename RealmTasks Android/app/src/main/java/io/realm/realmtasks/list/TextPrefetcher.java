@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.list;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.LruCache;
+import android.view.View;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Measures the text of the rows that are about to scroll into view on a background thread.
+ * <p>
+ * PrecomputedText isn't available with the platform and support library versions this app builds against, and a
+ * TextView can't be handed a layout computed elsewhere. The text measurement caches of the platform are shared
+ * between threads though, so laying out the upcoming texts with the same paint and width ahead of time makes the
+ * measuring done by {@link TextView#setText} during bind mostly cache hits.
+ */
+class TextPrefetcher extends RecyclerView.OnScrollListener {
+
+    private static final int PREFETCH_COUNT = 8;
+    private static final int MAX_WARMED = 256;
+    private static final Executor TEXT_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "RealmTasks-Text");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+
+    private final CommonAdapter<?> adapter;
+    // Texts already submitted with the current paint and width.
+    private final LruCache<String, Boolean> warmed = new LruCache<>(MAX_WARMED);
+    // Copied from a bound row and never modified afterwards, so it can be used by the background thread.
+    private TextPaint paint;
+    private int width;
+
+    TextPrefetcher(CommonAdapter<?> adapter) {
+        this.adapter = adapter;
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        if (dy == 0 || !(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+            return;
+        }
+        final LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        final int edge = dy > 0
+                ? layoutManager.findLastVisibleItemPosition()
+                : layoutManager.findFirstVisibleItemPosition();
+        if (edge == RecyclerView.NO_POSITION || !updatePaint(recyclerView.findViewHolderForAdapterPosition(edge))) {
+            return;
+        }
+        final int step = dy > 0 ? 1 : -1;
+        final int itemCount = adapter.getItemCount();
+        for (int i = 1; i <= PREFETCH_COUNT; i++) {
+            final int position = edge + step * i;
+            if (position < 0 || position >= itemCount) {
+                break;
+            }
+            final String text = adapter.getItemTextAt(position);
+            if (text == null || text.isEmpty() || warmed.get(text) != null) {
+                continue;
+            }
+            warmed.put(text, Boolean.TRUE);
+            prefetch(text, paint, width);
+        }
+    }
+
+    private boolean updatePaint(RecyclerView.ViewHolder holder) {
+        if (!(holder instanceof ItemViewHolder)) {
+            return paint != null;
+        }
+        final TextView text = ((ItemViewHolder) holder).getText();
+        final View parent = (View) text.getParent();
+        final LinearLayout.LayoutParams layoutParams = (LinearLayout.LayoutParams) text.getLayoutParams();
+        final int availableWidth = parent.getWidth() - parent.getPaddingLeft() - parent.getPaddingRight()
+                - layoutParams.leftMargin - layoutParams.rightMargin
+                - text.getTotalPaddingLeft() - text.getTotalPaddingRight();
+        if (availableWidth <= 0) {
+            return paint != null;
+        }
+        if (paint == null || width != availableWidth || paint.getTextSize() != text.getTextSize()) {
+            paint = new TextPaint(text.getPaint());
+            width = availableWidth;
+            warmed.evictAll();
+        }
+        return true;
+    }
+
+    private static void prefetch(final String text, final TextPaint paint, final int width) {
+        TEXT_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                new StaticLayout(text, paint, width, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, true);
+            }
+        });
+    }
+}
@@ -21,14 +21,15 @@ import android.graphics.Canvas;
 import android.os.Handler;
 import android.os.Looper;
 import android.support.annotation.IntDef;
+import android.support.annotation.StringRes;
 import android.support.v4.view.GestureDetectorCompat;
 import android.support.v4.view.MotionEventCompat;
 import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.DefaultItemAnimator;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.RecyclerView.OnItemTouchListener;
 import android.support.v7.widget.RecyclerView.ViewHolder;
-import android.text.SpannableStringBuilder;
 import android.util.DisplayMetrics;
 import android.view.GestureDetector.SimpleOnGestureListener;
 import android.view.MotionEvent;
@@ -43,6 +44,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 
 import io.realm.realmtasks.R;
+import io.realm.realmtasks.metrics.GestureFrameMetrics;
 
 import static android.support.v7.widget.RecyclerView.ItemDecoration;
 import static android.support.v7.widget.RecyclerView.SCROLL_STATE_DRAGGING;
@@ -72,9 +74,16 @@ public class TouchHelper {
     private RecyclerView recyclerView;
     private TasksOnItemTouchListener onItemTouchListener;
     private TasksItemDecoration itemDecoration;
+    private GestureFrameMetrics frameMetrics;
     private boolean isAddingCanceled;
-
-    @IntDef({ACTION_STATE_IDLE, ACTION_STATE_SWIPE, ACTION_STATE_PULL})
+    // State of the pull-to-add gesture, so that the list is only laid out and the text only changed when needed.
+    private boolean pullAnchored;
+    // How much of the new row is scrolled out of view at the top while pulling.
+    private int pullHiddenHeight;
+    private ItemViewHolder pullTextHolder;
+    private int pullTextResId;
+
+    @IntDef({ACTION_STATE_IDLE, ACTION_STATE_SWIPE, ACTION_STATE_PULL, ACTION_STATE_DRAG})
     @Retention(RetentionPolicy.SOURCE)
     private @interface ActionState {
     }
@@ -82,6 +91,7 @@ public class TouchHelper {
     private static final int ACTION_STATE_IDLE = 0;
     private static final int ACTION_STATE_SWIPE = 1;
     private static final int ACTION_STATE_PULL = 2;
+    private static final int ACTION_STATE_DRAG = 3;
     @ActionState
     private int actionState = ACTION_STATE_IDLE;
 
@@ -121,9 +131,12 @@ public class TouchHelper {
         onItemTouchListener = new TasksOnItemTouchListener(recyclerView.getContext());
         itemDecoration = new TasksItemDecoration();
         recyclerView.setLayoutManager(new LinearLayoutManager(recyclerView.getContext()));
+        recyclerView.setItemAnimator(new DragItemAnimator());
         recyclerView.addOnItemTouchListener(onItemTouchListener);
         recyclerView.addItemDecoration(itemDecoration);
-        recyclerView.setAdapter(adapter);
+        // Swapped rather than set, setting an adapter clears the pool when no other RecyclerView uses it.
+        recyclerView.setRecycledViewPool(RowPool.get());
+        recyclerView.swapAdapter(adapter, true);
         final Context context = this.recyclerView.getContext();
         final ViewConfiguration viewConfiguration = ViewConfiguration.get(context);
         scaledTouchSlop = viewConfiguration.getScaledTouchSlop();
@@ -131,12 +144,49 @@ public class TouchHelper {
         final WindowManager systemService = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
         systemService.getDefaultDisplay().getMetrics(metrics);
         logicalDensity = metrics.density;
+        frameMetrics = new GestureFrameMetrics(systemService.getDefaultDisplay().getRefreshRate());
         adapter.setOnFirstItemUpdateListener(new OnFirstItemUpdateListener());
     }
 
+    /**
+     * Returns the y coordinate of the pointer in the RecyclerView's parent. The list is translated while pulling, and
+     * the coordinates of the events it receives move with it, which would feed the translation back into dy.
+     */
+    private float getY(MotionEvent motionEvent, int pointerIndex) {
+        return motionEvent.getY(pointerIndex) + recyclerView.getTranslationY();
+    }
+
+    /**
+     * Shows the part of the new row that has been pulled in. The rest of it is scrolled out of view at the top, which
+     * fills in the rows coming into view at the bottom; only what is pulled beyond its height moves the whole list.
+     * Neither scrolling nor translation requests a layout.
+     */
+    private void setPullOffset(float dy, int height) {
+        final int hiddenHeight = (int) Math.max(0, Math.min(height, height - dy));
+        if (hiddenHeight != pullHiddenHeight) {
+            recyclerView.scrollBy(0, hiddenHeight - pullHiddenHeight);
+            pullHiddenHeight = hiddenHeight;
+        }
+        recyclerView.setTranslationY(Math.max(0, dy - height));
+    }
+
+    private void resetPullOffset() {
+        if (pullHiddenHeight != 0) {
+            recyclerView.scrollBy(0, -pullHiddenHeight);
+            pullHiddenHeight = 0;
+        }
+        recyclerView.setTranslationY(0);
+    }
+
     private void destroyCallbacks() {
+        itemDecoration.cancelMove();
+        frameMetrics.finish();
+        recyclerView.setTranslationY(0);
+        pullHiddenHeight = 0;
+        pullAnchored = false;
+        pullTextHolder = null;
         adapter.setOnFirstItemUpdateListener(null);
-        recyclerView.setAdapter(null);
+        recyclerView.swapAdapter(null, true);
         recyclerView.setLayoutManager(null);
         recyclerView.removeItemDecoration(itemDecoration);
         recyclerView.removeOnItemTouchListener(onItemTouchListener);
@@ -147,6 +197,7 @@ public class TouchHelper {
     public interface Callback {
 
         void onMoved(RecyclerView recyclerView, ItemViewHolder from, ItemViewHolder to);
+        void onDropped();
         void onCompleted(ItemViewHolder viewHolder);
         void onDismissed(ItemViewHolder viewHolder);
         boolean canDismissed();
@@ -157,10 +208,53 @@ public class TouchHelper {
         void onExit();
     }
 
+    /**
+     * Leaves the dragged row where the finger has it. The default animation of a move animates the translation of
+     * the row, which drawGesture() sets every frame.
+     */
+    private class DragItemAnimator extends DefaultItemAnimator {
+
+        @Override
+        public boolean animateMove(ViewHolder holder, int fromX, int fromY, int toX, int toY) {
+            if (actionState == ACTION_STATE_DRAG && holder == selected) {
+                dispatchMoveFinished(holder);
+                return false;
+            }
+            return super.animateMove(holder, fromX, fromY, toX, toY);
+        }
+    }
+
     private class TasksItemDecoration extends ItemDecoration {
 
+        // The adapter can't be notified while the rows are drawn, the dragged row is moved after the frame instead.
+        private boolean movePending;
+        private final Runnable moveRunnable = new Runnable() {
+            @Override
+            public void run() {
+                movePending = false;
+                if (actionState != ACTION_STATE_DRAG || selected == null) {
+                    return;
+                }
+                final ItemViewHolder target = findDragTarget(selected);
+                if (target != null) {
+                    callback.onMoved(recyclerView, selected, target);
+                }
+            }
+        };
+
+        void cancelMove() {
+            handler.removeCallbacks(moveRunnable);
+            movePending = false;
+        }
+
         @Override
         public void onDraw(Canvas c, RecyclerView parent, State state) {
+            frameMetrics.onDrawStart();
+            drawGesture();
+            frameMetrics.onDrawEnd();
+        }
+
+        private void drawGesture() {
             if (selected != null) {
                 final ItemViewHolder selectedViewHolder = selected;
                 final View selectedItemView = selectedViewHolder.itemView;
@@ -169,11 +263,13 @@ public class TouchHelper {
                     final float translationX = selectedInitialX + dx - selectedItemView.getLeft();
                     final float absDx = Math.abs(translationX);
                     final float maxNiche = logicalDensity * ICON_WIDTH;
+                    frameMetrics.countTranslationUpdate();
                     if (absDx < maxNiche) {
                         selectedViewHolder.setIconBarAlpha(absDx / maxNiche);
                         ViewCompat.setTranslationX(selectedViewHolder.getRow(), translationX);
                         if (translationX > 0) {
                             selectedViewHolder.setStrikeThroughRatio(absDx / maxNiche);
+                            frameMetrics.countStrikeThroughUpdate();
                             selectedViewHolder.revertBackgroundColorIfNeeded();
                         }
                     } else {
@@ -182,6 +278,7 @@ public class TouchHelper {
                             ViewCompat.setTranslationX(selectedViewHolder.getRow(), maxNiche);
                             ViewCompat.setTranslationX(selectedItemView, translationX - maxNiche);
                             selectedViewHolder.setStrikeThroughRatio(1f);
+                            frameMetrics.countStrikeThroughUpdate();
                             selectedViewHolder.changeBackgroundColorIfNeeded();
                         } else {
                             ViewCompat.setTranslationX(selectedViewHolder.getRow(), maxNiche * -1);
@@ -191,13 +288,13 @@ public class TouchHelper {
                 } else if (actionState == ACTION_STATE_PULL) {
                     boolean hintPanelVisible = false;
                     if (dy >= 0 && dy < height) {
-                        selectedViewHolder.getText().setText(R.string.pull_to_create_item);
+                        setPullText(selectedViewHolder, R.string.pull_to_create_item);
                         double ratio = dy / height;
                         float rotationX = (float) (90 - Math.toDegrees(Math.asin(ratio)));
                         selectedItemView.setRotationX(rotationX);
                         selectedItemView.setPivotY(height);
                     } else {
-                        selectedViewHolder.getText().setText(R.string.release_to_create_item);
+                        setPullText(selectedViewHolder, R.string.release_to_create_item);
                         selectedItemView.setTranslationY(0);
                         selectedItemView.setRotationX(0f);
                         if (callback.canDismissed()) {
@@ -213,18 +310,79 @@ public class TouchHelper {
                         }
                     }
                     selected.setHintPanelVisible(hintPanelVisible);
-                    int paddingTop = (int) dy - height;
-                    if (paddingTop < 0 - height) {
-                        paddingTop = 0 - height;
+                    if (!pullAnchored) {
+                        // Once, when the new row shows up: lay it out right above the top. Every later frame only
+                        // scrolls and moves views around. The scroll is applied by the next layout, so don't scroll
+                        // on top of it in this frame.
+                        ((LinearLayoutManager) recyclerView.getLayoutManager()).scrollToPositionWithOffset(0, -height);
+                        pullHiddenHeight = height;
+                        pullAnchored = true;
+                        recyclerView.setTranslationY(Math.max(0, dy - height));
+                    } else {
+                        setPullOffset(dy, height);
+                    }
+                    frameMetrics.countTranslationUpdate();
+                } else if (actionState == ACTION_STATE_DRAG) {
+                    selectedItemView.setTranslationY(selectedInitialY + dy - selectedItemView.getTop());
+                    frameMetrics.countTranslationUpdate();
+                    if (!movePending && findDragTarget(selectedViewHolder) != null) {
+                        movePending = true;
+                        handler.post(moveRunnable);
                     }
-                    ViewCompat.setPaddingRelative(recyclerView, 0, paddingTop, 0, 0);
-                    recyclerView.scrollToPosition(0);
                 }
             }
             if (actionState == ACTION_STATE_PULL && selected == null) {
                 recyclerView.scrollBy(0, (int) dy * -1);
             }
         }
+
+        /**
+         * Returns the row the dragged row should swap places with, once its center has passed the middle of that
+         * row in the direction of the drag.
+         */
+        private ItemViewHolder findDragTarget(ItemViewHolder draggedViewHolder) {
+            final View draggedView = draggedViewHolder.itemView;
+            final int draggedPosition = draggedViewHolder.getAdapterPosition();
+            if (draggedPosition == RecyclerView.NO_POSITION) {
+                return null;
+            }
+            final float centerY = draggedView.getTop() + draggedView.getTranslationY() + draggedView.getHeight() / 2f;
+            for (int i = 0; i < recyclerView.getChildCount(); i++) {
+                final View child = recyclerView.getChildAt(i);
+                if (child == draggedView) {
+                    continue;
+                }
+                final float top = child.getTop() + child.getTranslationY();
+                final float bottom = top + child.getHeight();
+                if (centerY < top || centerY >= bottom) {
+                    continue;
+                }
+                final ViewHolder viewHolder = recyclerView.getChildViewHolder(child);
+                if (!(viewHolder instanceof ItemViewHolder) || viewHolder.getAdapterPosition() == RecyclerView.NO_POSITION) {
+                    return null;
+                }
+                // Positions are updated before the rows are laid out again, checking the direction keeps the rows
+                // from swapping back and forth in between.
+                final int position = viewHolder.getAdapterPosition();
+                final float middle = (top + bottom) / 2;
+                if ((position > draggedPosition && centerY > middle) || (position < draggedPosition && centerY < middle)) {
+                    return (ItemViewHolder) viewHolder;
+                }
+                return null;
+            }
+            return null;
+        }
+
+        private void setPullText(ItemViewHolder viewHolder, @StringRes int resId) {
+            // Changing the text requests a layout, only do it when the threshold is crossed.
+            if (viewHolder == pullTextHolder && resId == pullTextResId) {
+                return;
+            }
+            pullTextHolder = viewHolder;
+            pullTextResId = resId;
+            viewHolder.getText().setText(resId);
+            frameMetrics.countTextUpdate();
+        }
     }
 
     private class TasksOnItemTouchListener implements OnItemTouchListener {
@@ -243,7 +401,7 @@ public class TouchHelper {
                 pointerId = motionEvent.getPointerId(0);
                 final int pointerIndex = motionEvent.findPointerIndex(pointerId);
                 initialX = motionEvent.getX(pointerIndex);
-                initialY = motionEvent.getY(pointerIndex);
+                initialY = getY(motionEvent, pointerIndex);
                 isAddingCanceled = false;
             } else if (action == MotionEvent.ACTION_CANCEL || action == MotionEvent.ACTION_UP) {
                 pointerId = POINTER_ID_NONE;
@@ -282,7 +440,7 @@ public class TouchHelper {
             } else if (action == MotionEvent.ACTION_MOVE) {
                 if (actionState == ACTION_STATE_PULL || viewHolder != null) {
                     dx = motionEvent.getX(pointerIndex) - initialX;
-                    dy = motionEvent.getY(pointerIndex) - initialY;
+                    dy = getY(motionEvent, pointerIndex) - initialY;
                     TouchHelper.this.recyclerView.invalidate();
                 }
             }
@@ -322,9 +480,9 @@ public class TouchHelper {
                 final int pointerIndex = motionEvent.findPointerIndex(pointerId);
                 final int action = MotionEventCompat.getActionMasked(motionEvent);
                 if (action == MotionEvent.ACTION_MOVE) {
-                    dy = motionEvent.getY(pointerIndex) - initialY;
+                    dy = getY(motionEvent, pointerIndex) - initialY;
                     if (dy > 10) {
-                        initialY = motionEvent.getY(pointerIndex);
+                        initialY = getY(motionEvent, pointerIndex);
                         callback.onAdded();
                         pullState = PULL_STATE_ADD;
                         selectView(null, ACTION_STATE_PULL);
@@ -345,7 +503,7 @@ public class TouchHelper {
             }
             final int pointerIndex = motionEvent.findPointerIndex(pointerId);
             dx = motionEvent.getX(pointerIndex) - initialX;
-            dy = motionEvent.getY(pointerIndex) - initialY;
+            dy = getY(motionEvent, pointerIndex) - initialY;
             final float absDx = Math.abs(dx);
             final float absDy = Math.abs(dy);
 
@@ -372,6 +530,10 @@ public class TouchHelper {
                 return;
             }
             final @ActionState int previousActionState = TouchHelper.this.actionState;
+            if (actionState != previousActionState) {
+                // Released, or switched to another gesture.
+                frameMetrics.finish();
+            }
             if (previousActionState == ACTION_STATE_SWIPE) {
                 if (TouchHelper.this.selected != null) {
                     final float maxNiche = logicalDensity * ICON_WIDTH;
@@ -386,17 +548,16 @@ public class TouchHelper {
                             animateCompleteItem(selectedItemView);
                         }
                     } else {
-                        final CharSequence text = TouchHelper.this.selected.getText().getText();
-                        final SpannableStringBuilder stringBuilder = new SpannableStringBuilder(text, 0, text.length());
-                        stringBuilder.clearSpans();
-                        TouchHelper.this.selected.getText().setText(stringBuilder);
+                        TouchHelper.this.selected.clearStrikeThrough();
                         boolean completed = TouchHelper.this.selected.getCompleted();
                         TouchHelper.this.selected.reset();
                         TouchHelper.this.selected.setCompleted(completed);
                     }
                 }
             } else if (previousActionState == ACTION_STATE_PULL) {
-                ViewCompat.setPaddingRelative(recyclerView, 0, 0, 0, 0);
+                resetPullOffset();
+                pullAnchored = false;
+                pullTextHolder = null;
                 if (TouchHelper.this.selected != null) {
                     TouchHelper.this.selected.itemView.setRotationX(0);
                     TouchHelper.this.selected.itemView.setTranslationY(0);
@@ -423,9 +584,27 @@ public class TouchHelper {
                     }
                     TouchHelper.this.selected = null;
                 }
+            } else if (previousActionState == ACTION_STATE_DRAG) {
+                itemDecoration.cancelMove();
+                if (TouchHelper.this.selected != null) {
+                    ViewCompat.animate(TouchHelper.this.selected.itemView)
+                            .translationY(0)
+                            .setDuration(ANIMATION_DURATION)
+                            .start();
+                }
+                callback.onDropped();
             }
             TouchHelper.this.selected = selected;
             TouchHelper.this.actionState = actionState;
+            if (actionState != previousActionState) {
+                if (actionState == ACTION_STATE_SWIPE) {
+                    frameMetrics.start("swipe");
+                } else if (actionState == ACTION_STATE_PULL) {
+                    frameMetrics.start("pull");
+                } else if (actionState == ACTION_STATE_DRAG) {
+                    frameMetrics.start("drag");
+                }
+            }
             if (selected != null) {
                 selectedInitialX = selected.itemView.getLeft();
                 selectedInitialY = selected.itemView.getTop();
@@ -460,6 +639,29 @@ public class TouchHelper {
                 return true;
             }
 
+            @Override
+            public void onLongPress(MotionEvent motionEvent) {
+                if (actionState != ACTION_STATE_IDLE || currentEditing != null || pointerId == POINTER_ID_NONE) {
+                    return;
+                }
+                final int pointerIndex = motionEvent.findPointerIndex(pointerId);
+                if (pointerIndex == -1) {
+                    return;
+                }
+                final View childView = findChildView(motionEvent, pointerIndex);
+                if (childView == null) {
+                    return;
+                }
+                final ViewHolder viewHolder = recyclerView.getChildViewHolder(childView);
+                if (!(viewHolder instanceof ItemViewHolder)) {
+                    return;
+                }
+                initialX = motionEvent.getX(pointerIndex);
+                initialY = getY(motionEvent, pointerIndex);
+                TouchHelper.this.dx = TouchHelper.this.dy = 0;
+                selectView((ItemViewHolder) viewHolder, ACTION_STATE_DRAG);
+            }
+
             @Override
             public boolean onSingleTapConfirmed(MotionEvent motionEvent) {
                 final int pointerId = motionEvent.getPointerId(0);
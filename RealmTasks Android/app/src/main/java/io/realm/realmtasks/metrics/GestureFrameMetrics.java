@@ -0,0 +1,221 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.metrics;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frame timing of a touch gesture, from the moment it starts until it is released.
+ * <p>
+ * Frame durations are taken from {@link Choreographer} (API 16 and later, on older devices only the drawing work is
+ * counted). The gesture's owner reports the work it does while drawing through {@link #onDrawStart()},
+ * {@link #onDrawEnd()} and the counters. When the gesture ends, a {@link Summary} is published to {@link Metrics} and
+ * to the {@link Listener}, if one is set, so that UI benchmarks can assert on it. Must only be used from the main
+ * thread.
+ */
+public class GestureFrameMetrics {
+
+    public static class Summary {
+        public final String gesture;
+        public final int frames;
+        public final int droppedFrames;
+        // Frame durations and drawing work are in microseconds.
+        public final long frameP50;
+        public final long frameP99;
+        public final long frameMax;
+        public final long drawTotal;
+        public final long drawMax;
+        public final int translationUpdates;
+        public final int strikeThroughUpdates;
+        public final int textUpdates;
+
+        Summary(GestureFrameMetrics metrics) {
+            gesture = metrics.gesture;
+            frames = (int) metrics.frameDurations.getCount();
+            droppedFrames = metrics.droppedFrames;
+            frameP50 = metrics.frameDurations.getValueAtPercentile(50);
+            frameP99 = metrics.frameDurations.getValueAtPercentile(99);
+            frameMax = metrics.frameDurations.getMax();
+            drawTotal = TimeUnit.NANOSECONDS.toMicros(metrics.drawTotalNanos);
+            drawMax = TimeUnit.NANOSECONDS.toMicros(metrics.drawMaxNanos);
+            translationUpdates = metrics.translationUpdates;
+            strikeThroughUpdates = metrics.strikeThroughUpdates;
+            textUpdates = metrics.textUpdates;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: %d frames, %d dropped, frame p50 %d us, p99 %d us, max %d us, "
+                            + "draw total %d us, max %d us, %d translations, %d strike-throughs, %d texts",
+                    gesture, frames, droppedFrames, frameP50, frameP99, frameMax, drawTotal, drawMax,
+                    translationUpdates, strikeThroughUpdates, textUpdates);
+        }
+    }
+
+    public interface Listener {
+        void onGestureFinished(Summary summary);
+    }
+
+    private static final long DEFAULT_FRAME_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+
+    private static Listener listener;
+
+    private final long frameIntervalNanos;
+    private final LatencyHistogram frameDurations = new LatencyHistogram();
+    private final FrameObserver frameObserver;
+    private String gesture;
+    private int droppedFrames;
+    private long drawStartNanos;
+    private long drawTotalNanos;
+    private long drawMaxNanos;
+    private int translationUpdates;
+    private int strikeThroughUpdates;
+    private int textUpdates;
+
+    /**
+     * @param refreshRate the refresh rate of the display in frames per second, or 0 if unknown.
+     */
+    public GestureFrameMetrics(float refreshRate) {
+        frameIntervalNanos = refreshRate > 0
+                ? (long) (TimeUnit.SECONDS.toNanos(1) / refreshRate)
+                : DEFAULT_FRAME_INTERVAL_NANOS;
+        frameObserver = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN ? new FrameObserver(this) : null;
+    }
+
+    public static void setListener(Listener listener) {
+        GestureFrameMetrics.listener = listener;
+    }
+
+    public boolean isActive() {
+        return gesture != null;
+    }
+
+    /**
+     * Starts measuring a gesture. A gesture that is still being measured is finished first.
+     */
+    public void start(String gesture) {
+        if (isActive()) {
+            finish();
+        }
+        this.gesture = gesture;
+        frameDurations.reset();
+        droppedFrames = 0;
+        drawTotalNanos = 0;
+        drawMaxNanos = 0;
+        translationUpdates = 0;
+        strikeThroughUpdates = 0;
+        textUpdates = 0;
+        if (frameObserver != null) {
+            frameObserver.start();
+        }
+    }
+
+    /**
+     * Finishes the gesture and publishes its summary. Does nothing if no gesture is being measured.
+     */
+    public void finish() {
+        if (!isActive()) {
+            return;
+        }
+        if (frameObserver != null) {
+            frameObserver.stop();
+        }
+        final Summary summary = new Summary(this);
+        gesture = null;
+        final String prefix = "gesture." + summary.gesture + ".";
+        Metrics.record(prefix + "frames", summary.frames);
+        Metrics.record(prefix + "dropped_frames", summary.droppedFrames);
+        Metrics.record(prefix + "frame_p99_us", summary.frameP99);
+        Metrics.record(prefix + "draw_max_us", summary.drawMax);
+        if (listener != null) {
+            listener.onGestureFinished(summary);
+        }
+    }
+
+    public void onDrawStart() {
+        if (isActive()) {
+            drawStartNanos = System.nanoTime();
+        }
+    }
+
+    public void onDrawEnd() {
+        if (isActive()) {
+            final long duration = System.nanoTime() - drawStartNanos;
+            drawTotalNanos += duration;
+            drawMaxNanos = Math.max(drawMaxNanos, duration);
+        }
+    }
+
+    public void countTranslationUpdate() {
+        translationUpdates++;
+    }
+
+    public void countStrikeThroughUpdate() {
+        strikeThroughUpdates++;
+    }
+
+    public void countTextUpdate() {
+        textUpdates++;
+    }
+
+    private void onFrame(long intervalNanos) {
+        frameDurations.record(TimeUnit.NANOSECONDS.toMicros(intervalNanos));
+        // Half an interval of tolerance for jitter in the frame times.
+        droppedFrames += Math.max(0, (intervalNanos + frameIntervalNanos / 2) / frameIntervalNanos - 1);
+    }
+
+    // Separate class, so that Choreographer is only loaded on devices that have it.
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class FrameObserver implements Choreographer.FrameCallback {
+
+        private final GestureFrameMetrics metrics;
+        private long lastFrameTimeNanos;
+        private boolean running;
+
+        FrameObserver(GestureFrameMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        void start() {
+            lastFrameTimeNanos = 0;
+            running = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        void stop() {
+            running = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!running) {
+                return;
+            }
+            if (lastFrameTimeNanos != 0) {
+                metrics.onFrame(frameTimeNanos - lastFrameTimeNanos);
+            }
+            lastFrameTimeNanos = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.metrics;
+
+import android.os.SystemClock;
+
+/**
+ * Measures the initial sync on a new device: how long it takes from login until the data that was on the server at
+ * that time has been downloaded, and how many bytes that is. Recorded by {@code InitialDownload}, returning users
+ * whose data is already on the device don't download anything to measure.
+ */
+public class InitialSyncMetrics {
+
+    public static final String DURATION = "sync.initial.duration_ms";
+    public static final String BYTES = "sync.initial.bytes";
+
+    private static long startTime = -1;
+
+    private InitialSyncMetrics() {
+    }
+
+    /**
+     * Starts a new measurement. Called when a user logs in.
+     */
+    public static synchronized void markStart() {
+        startTime = SystemClock.uptimeMillis();
+    }
+
+    /**
+     * Records the measurement once the initial download has completed.
+     */
+    public static synchronized void onDownloaded(long transferredBytes) {
+        if (startTime < 0) {
+            return;
+        }
+        Metrics.record(DURATION, SystemClock.uptimeMillis() - startTime);
+        Metrics.record(BYTES, transferredBytes);
+        startTime = -1;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.metrics;
+
+/**
+ * Entry point for recording metrics. Values are forwarded to the current {@link MetricsSink}. There is none by
+ * default, so values are dropped; debug builds log them, see {@code RealmTasksApplication}.
+ */
+public class Metrics {
+
+    private static volatile MetricsSink sink;
+
+    private Metrics() {
+    }
+
+    public static void setSink(MetricsSink sink) {
+        Metrics.sink = sink;
+    }
+
+    public static void record(String name, long value) {
+        final MetricsSink sink = Metrics.sink;
+        if (sink != null) {
+            sink.record(name, value);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.metrics;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+/**
+ * Measures how long it takes from process start, or from signing in, until the list screens are drawn for the first
+ * time and until they show data the user can interact with. Recorded once per start.
+ */
+public class StartupMetrics {
+
+    public static final String FIRST_FRAME = "startup.first_frame_ms";
+    public static final String INTERACTIVE = "startup.interactive_ms";
+
+    private static long startTime = -1;
+    private static boolean firstFrameReported;
+    private static boolean interactiveReported;
+
+    private StartupMetrics() {
+    }
+
+    /**
+     * Starts a new measurement. Must be called from the main thread.
+     */
+    public static void markStart() {
+        startTime = SystemClock.uptimeMillis();
+        firstFrameReported = false;
+        interactiveReported = false;
+    }
+
+    /**
+     * Reports the time to first frame when the activity is drawn for the first time.
+     */
+    public static void onFirstFrame(Activity activity) {
+        if (startTime < 0 || firstFrameReported) {
+            return;
+        }
+        final View decorView = activity.getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+                if (!firstFrameReported) {
+                    firstFrameReported = true;
+                    Metrics.record(FIRST_FRAME, SystemClock.uptimeMillis() - startTime);
+                }
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Reports the time to interactive. Called once the data is bound to the list.
+     */
+    public static void onInteractive() {
+        if (startTime < 0 || interactiveReported) {
+            return;
+        }
+        interactiveReported = true;
+        Metrics.record(INTERACTIVE, SystemClock.uptimeMillis() - startTime);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.metrics;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.realm.ErrorCode;
+import io.realm.ObjectServerError;
+import io.realm.Progress;
+import io.realm.ProgressListener;
+import io.realm.ProgressMode;
+import io.realm.Realm;
+import io.realm.SyncConfiguration;
+import io.realm.SyncManager;
+import io.realm.SyncSession;
+
+/**
+ * Publishes the health of the sync session of the active user to {@link Metrics}:
+ * <ul>
+ * <li>{@link #UPLOAD_RATE} and {@link #DOWNLOAD_RATE}, in bytes per second between two progress notifications.</li>
+ * <li>{@link #UPLOAD_PENDING}, the bytes of local changes the server hasn't acknowledged yet.</li>
+ * <li>{@link #ROUND_TRIP}, the time from a local commit until the server acknowledged it. A commit shows up as an
+ * increase of the transferable upload bytes, and is acknowledged once the transferred bytes reach that value.</li>
+ * <li>{@link #RECONNECTS}, the number of recoverable session errors so far. Each of them makes the session
+ * reconnect.</li>
+ * </ul>
+ */
+public class SyncMonitor {
+
+    private static final String TAG = "SyncMonitor";
+
+    public static final String UPLOAD_RATE = "sync.upload.bytes_per_second";
+    public static final String DOWNLOAD_RATE = "sync.download.bytes_per_second";
+    public static final String UPLOAD_PENDING = "sync.upload.pending_bytes";
+    public static final String ROUND_TRIP = "sync.round_trip_ms";
+    public static final String RECONNECTS = "sync.reconnects";
+
+    /**
+     * Session error handler for the {@link SyncConfiguration}s of the app.
+     */
+    public static final SyncSession.ErrorHandler ERROR_HANDLER = new SyncSession.ErrorHandler() {
+        @Override
+        public void onError(SyncSession session, ObjectServerError error) {
+            Log.e(TAG, "Sync session error: " + error);
+            if (error.getCategory() == ErrorCode.Category.RECOVERABLE) {
+                Metrics.record(RECONNECTS, reconnects.incrementAndGet());
+            }
+        }
+    };
+
+    private static final AtomicLong reconnects = new AtomicLong();
+    private static String trackedPath;
+    private static SyncSession trackedSession;
+    private static ProgressListener uploadListener;
+    private static ProgressListener downloadListener;
+
+    private SyncMonitor() {
+    }
+
+    /**
+     * Starts monitoring the session of {@code realm}, unless it's monitored already. The session only exists once the
+     * Realm has been opened, so this is called by the screens when their Realm is ready.
+     */
+    public static synchronized void track(Realm realm) {
+        if (!(realm.getConfiguration() instanceof SyncConfiguration) || realm.getPath().equals(trackedPath)) {
+            return;
+        }
+        stop();
+        trackedPath = realm.getPath();
+        trackedSession = SyncManager.getSession((SyncConfiguration) realm.getConfiguration());
+        uploadListener = new UploadListener();
+        downloadListener = new RateListener(DOWNLOAD_RATE);
+        trackedSession.addUploadProgressListener(ProgressMode.INDEFINITELY, uploadListener);
+        trackedSession.addDownloadProgressListener(ProgressMode.INDEFINITELY, downloadListener);
+    }
+
+    /**
+     * Stops monitoring the session. Called when the user logs out, so that the next session is monitored even if it is
+     * the same user's.
+     */
+    public static synchronized void stop() {
+        if (trackedSession != null) {
+            trackedSession.removeProgressListener(uploadListener);
+            trackedSession.removeProgressListener(downloadListener);
+            trackedSession = null;
+            uploadListener = null;
+            downloadListener = null;
+        }
+        trackedPath = null;
+    }
+
+    private static class RateListener implements ProgressListener {
+
+        private final String name;
+        private long lastTime = -1;
+        private long lastTransferred;
+
+        RateListener(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void onChange(Progress progress) {
+            final long now = SystemClock.elapsedRealtime();
+            final long transferred = progress.getTransferredBytes();
+            if (lastTime >= 0 && now > lastTime && transferred > lastTransferred) {
+                Metrics.record(name, (transferred - lastTransferred) * 1000 / (now - lastTime));
+            }
+            lastTime = now;
+            lastTransferred = transferred;
+        }
+    }
+
+    private static class UploadListener extends RateListener {
+
+        // Transferable byte counts that still have to be reached, and when they were first seen.
+        private final ArrayDeque<long[]> commits = new ArrayDeque<>();
+        private long lastTransferable;
+
+        UploadListener() {
+            super(UPLOAD_RATE);
+        }
+
+        @Override
+        public void onChange(Progress progress) {
+            super.onChange(progress);
+            final long now = SystemClock.elapsedRealtime();
+            final long transferred = progress.getTransferredBytes();
+            final long transferable = progress.getTransferableBytes();
+            if (transferable > lastTransferable) {
+                commits.add(new long[] {transferable, now});
+                lastTransferable = transferable;
+            }
+            while (!commits.isEmpty() && commits.peek()[0] <= transferred) {
+                Metrics.record(ROUND_TRIP, now - commits.poll()[1]);
+            }
+            Metrics.record(UPLOAD_PENDING, Math.max(0, transferable - transferred));
+        }
+    }
+}
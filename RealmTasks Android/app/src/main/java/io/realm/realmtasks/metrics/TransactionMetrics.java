@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.metrics;
+
+import android.content.Intent;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the transactions the adapters run on the {@link io.realm.realmtasks.data.WriteQueue}, per operation and
+ * per phase: waiting for the write lock, running the transaction body, and committing, which includes writing the
+ * changes to disk.
+ */
+public class TransactionMetrics {
+
+    private static final String TAG = "TransactionMetrics";
+
+    public enum Operation {
+        ADD, MOVE, COMPLETE, DISMISS, EDIT, REVERT
+    }
+
+    public enum Phase {
+        LOCK_WAIT, BODY, COMMIT
+    }
+
+    private static final LatencyHistogram[][] histograms =
+            new LatencyHistogram[Operation.values().length][Phase.values().length];
+
+    static {
+        for (LatencyHistogram[] phases : histograms) {
+            for (int i = 0; i < phases.length; i++) {
+                phases[i] = new LatencyHistogram();
+            }
+        }
+    }
+
+    private TransactionMetrics() {
+    }
+
+    /**
+     * Records one transaction. Durations are in nanoseconds.
+     */
+    public static void record(Operation operation, long lockWaitNanos, long bodyNanos, long commitNanos) {
+        final LatencyHistogram[] phases = histograms[operation.ordinal()];
+        phases[Phase.LOCK_WAIT.ordinal()].record(TimeUnit.NANOSECONDS.toMicros(lockWaitNanos));
+        phases[Phase.BODY.ordinal()].record(TimeUnit.NANOSECONDS.toMicros(bodyNanos));
+        phases[Phase.COMMIT.ordinal()].record(TimeUnit.NANOSECONDS.toMicros(commitNanos));
+    }
+
+    public static LatencyHistogram getHistogram(Operation operation, Phase phase) {
+        return histograms[operation.ordinal()][phase.ordinal()];
+    }
+
+    public static void reset() {
+        for (LatencyHistogram[] phases : histograms) {
+            for (LatencyHistogram histogram : phases) {
+                histogram.reset();
+            }
+        }
+    }
+
+    /**
+     * Returns all histograms as JSON, e.g. {@code {"add": {"lock_wait": {"count": 3, "p50": 120, ...}, ...}, ...}}.
+     * Values are in microseconds.
+     */
+    public static JSONObject toJson() throws JSONException {
+        final JSONObject json = new JSONObject();
+        for (Operation operation : Operation.values()) {
+            final JSONObject phases = new JSONObject();
+            for (Phase phase : Phase.values()) {
+                phases.put(phase.name().toLowerCase(Locale.US), getHistogram(operation, phase).toJson());
+            }
+            json.put(operation.name().toLowerCase(Locale.US), phases);
+        }
+        return json;
+    }
+
+    /**
+     * Returns an intent sharing the histograms as JSON text, or null if they can't be serialized.
+     */
+    public static Intent createShareIntent() {
+        try {
+            final Intent intent = new Intent(Intent.ACTION_SEND);
+            intent.setType("application/json");
+            intent.putExtra(Intent.EXTRA_SUBJECT, "RealmTasks transaction latencies");
+            intent.putExtra(Intent.EXTRA_TEXT, toJson().toString(2));
+            return intent;
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not export histograms", e);
+            return null;
+        }
+    }
+}
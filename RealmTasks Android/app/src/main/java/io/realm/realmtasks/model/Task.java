@@ -19,18 +19,41 @@ package io.realm.realmtasks.model;
 import java.util.Date;
 
 import io.realm.RealmObject;
+import io.realm.RealmResults;
+import io.realm.annotations.Index;
+import io.realm.annotations.LinkingObjects;
 import io.realm.annotations.Required;
 
 public class Task extends RealmObject implements Completable {
 
+    public static final String FIELD_ID = "id";
     public static final String FIELD_TEXT = "text";
     public static final String FIELD_COMPLETED = "completed";
     public static final String FIELD_DATE = "date";
+    public static final String FIELD_COMPLETED_AT = "completedAt";
+    public static final String FIELD_LISTS = "lists";
 
+    // Not a primary key: Task is shared with the other RealmTasks clients through sync, and a primary key cannot be
+    // added to an already synced class. Null for tasks created by other clients, which are then written by position.
+    @Index
+    private String id;
     @Required
     private String text;
     private boolean completed;
     private Date date;
+    // Only set by this client. Used to decide which completed tasks are old enough to be archived.
+    private Date completedAt;
+    // The lists that contain this task, normally exactly one.
+    @LinkingObjects("items")
+    private final RealmResults<TaskList> lists = null;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
 
     public String getText() {
         return text;
@@ -46,6 +69,15 @@ public class Task extends RealmObject implements Completable {
 
     public void setCompleted(boolean completed) {
         this.completed = completed;
+        this.completedAt = completed ? new Date() : null;
+    }
+
+    public Date getCompletedAt() {
+        return completedAt;
+    }
+
+    public RealmResults<TaskList> getLists() {
+        return lists;
     }
 
     public Date getDate() {
@@ -26,6 +26,9 @@ public class TaskList extends RealmObject implements Completable {
     public static final String FIELD_ID = "id";
     public static final String FIELD_TEXT = "text";
     public static final String FIELD_COMPLETED = "completed";
+    public static final String FIELD_OPEN_COUNT = "openCount";
+    public static final String FIELD_TOTAL_COUNT = "totalCount";
+    public static final String FIELD_DELETED = "deleted";
 
     @PrimaryKey @Required
     private String id;
@@ -33,6 +36,12 @@ public class TaskList extends RealmObject implements Completable {
     private String text;
     private boolean completed;
     private RealmList<Task> items;
+    // Denormalized counts of items, maintained by every write that adds, completes or removes a task, and
+    // recomputed by TaskCounters when other clients change the list.
+    private long openCount;
+    private long totalCount;
+    // Set when the list has been removed from TaskListList but its tasks are still being deleted by ListDeletion.
+    private boolean deleted;
 
     public String getText() {
         return text;
@@ -66,6 +75,30 @@ public class TaskList extends RealmObject implements Completable {
         this.items = items;
     }
 
+    public long getOpenCount() {
+        return openCount;
+    }
+
+    public void setOpenCount(long openCount) {
+        this.openCount = openCount;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public void setTotalCount(long totalCount) {
+        this.totalCount = totalCount;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+
     @Override
     public boolean isCompletable() {
         return !getItems().isEmpty();
@@ -29,6 +29,16 @@ public class RecyclerViewWithEmptyViewSupport extends RecyclerView {
     private View emptyView;
 
     private AdapterDataObserver emptyObserver = new AdapterDataObserver() {
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            onChanged();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            onChanged();
+        }
+
         @Override
         public void onChanged() {
             Adapter<?> adapter =  getAdapter();
@@ -90,6 +100,17 @@ public class RecyclerViewWithEmptyViewSupport extends RecyclerView {
         emptyObserver.onChanged();
     }
 
+    @Override
+    public void swapAdapter(Adapter adapter, boolean removeAndRecycleExistingViews) {
+        super.swapAdapter(adapter, removeAndRecycleExistingViews);
+
+        if(adapter != null) {
+            adapter.registerAdapterDataObserver(emptyObserver);
+        }
+
+        emptyObserver.onChanged();
+    }
+
     public void setEmptyView(View emptyView) {
         this.emptyView = emptyView;
     }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.realm.realmtasks;
+
+import org.junit.Assume;
+
+import java.util.Arrays;
+
+/**
+ * Helpers for the benchmark tests. Their time limits depend on the machine, so they are skipped in the normal unit
+ * test runs and only run when asked for with {@code ./gradlew testDebugUnitTest -Pbenchmark}. They run on the JVM
+ * rather than on a device, which catches regressions of the algorithms but not the exact cost on a phone.
+ */
+public final class Benchmark {
+
+    private static final String PROPERTY = "realmtasks.benchmark";
+
+    private Benchmark() {
+    }
+
+    /**
+     * Skips the calling test unless benchmarks were asked for. Call it from a {@code @Before} method.
+     */
+    public static void assumeEnabled() {
+        Assume.assumeTrue("Benchmarks only run with -Pbenchmark", Boolean.getBoolean(PROPERTY));
+    }
+
+    /**
+     * Runs {@code operation} often enough for the JIT to compile it. Warm up with the whole mix of inputs that is
+     * measured afterwards, code compiled for one input only can be slower for the others.
+     */
+    public static void warmUp(Runnable operation, int runs) {
+        for (int i = 0; i < runs; i++) {
+            operation.run();
+        }
+    }
+
+    /**
+     * Returns the median time of {@code runs} runs of {@code operation} in nanoseconds.
+     */
+    public static long medianNanos(Runnable operation, int runs) {
+        final long[] times = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            final long start = System.nanoTime();
+            operation.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[runs / 2];
+    }
+}
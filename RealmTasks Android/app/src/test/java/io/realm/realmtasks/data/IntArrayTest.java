@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.realm.realmtasks.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class IntArrayTest {
+
+    @Test
+    public void addGrowsBeyondInitialCapacity() {
+        final IntArray array = new IntArray();
+        for (int i = 0; i < 100; i++) {
+            array.add(i * 2);
+        }
+        assertEquals(100, array.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i * 2, array.get(i));
+        }
+    }
+
+    @Test
+    public void insertShiftsFollowingValues() {
+        final IntArray array = of(1, 2, 4);
+        array.insert(0, 0);
+        array.insert(3, 3);
+        array.insert(5, 5);
+        assertValues(array, 0, 1, 2, 3, 4, 5);
+    }
+
+    @Test
+    public void removeAtShiftsFollowingValues() {
+        final IntArray array = of(0, 1, 2, 3);
+        array.removeAt(0);
+        array.removeAt(1);
+        array.removeAt(1);
+        assertValues(array, 1);
+    }
+
+    @Test
+    public void addSortedKeepsOrderWithoutDuplicates() {
+        final IntArray array = new IntArray();
+        array.addSorted(4);
+        array.addSorted(8);
+        array.addSorted(0);
+        array.addSorted(6);
+        array.addSorted(4);
+        array.addSorted(8);
+        assertValues(array, 0, 4, 6, 8);
+    }
+
+    @Test
+    public void removeSortedRemovesOnlyPresentValues() {
+        final IntArray array = of(1, 3, 5, 7);
+        array.removeSorted(4);
+        assertValues(array, 1, 3, 5, 7);
+        array.removeSorted(7);
+        array.removeSorted(1);
+        assertValues(array, 3, 5);
+    }
+
+    @Test
+    public void removeSortedIgnoresValuesPastSize() {
+        final IntArray array = of(1, 2, 3);
+        array.removeAt(2);
+        // 3 is still in the backing array, but no longer part of the values.
+        array.removeSorted(3);
+        assertValues(array, 1, 2);
+    }
+
+    @Test
+    public void setAndClear() {
+        final IntArray array = of(1, 2);
+        array.set(1, 9);
+        assertValues(array, 1, 9);
+        array.clear();
+        assertEquals(0, array.size());
+        array.add(4);
+        assertValues(array, 4);
+    }
+
+    private static IntArray of(int... values) {
+        final IntArray array = new IntArray();
+        for (int value : values) {
+            array.add(value);
+        }
+        return array;
+    }
+
+    private static void assertValues(IntArray array, int... expected) {
+        assertEquals(expected.length, array.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], array.get(i));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.realm.realmtasks.data;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import io.realm.realmtasks.Benchmark;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that a query over 100,000 tasks stays within a frame (16 ms). Only runs with {@code -Pbenchmark}, see
+ * {@link Benchmark}.
+ */
+public class TextIndexBenchmarkTest {
+
+    private static final int TASK_COUNT = 100000;
+    private static final int LIST_COUNT = 200;
+    private static final int VOCABULARY_SIZE = 5000;
+    private static final long FRAME_NANOS = 16000000L;
+
+    private static final String[] QUERIES = {
+            // Broad single letters, the worst case: a large share of all documents are candidates.
+            "a", "s", "t",
+            "ca", "bu", "wat",
+            "call m", "buy mi", "re wo",
+            "zzz", "q x",
+    };
+
+    @Before
+    public void setUp() {
+        Benchmark.assumeEnabled();
+    }
+
+    @Test
+    public void queryStaysWithinAFrame() {
+        final Random random = new Random(42);
+        final String[] vocabulary = createVocabulary(random);
+        final TextIndex index = new TextIndex();
+        for (int i = 0; i < LIST_COUNT; i++) {
+            index.add(TextIndex.KIND_LIST, createText(random, vocabulary, 1, 3), "list" + i, null, false);
+        }
+        for (int i = 0; i < TASK_COUNT; i++) {
+            index.add(TextIndex.KIND_TASK, createText(random, vocabulary, 2, 8), "list" + random.nextInt(LIST_COUNT),
+                    "task" + i, random.nextInt(4) == 0);
+        }
+
+        Benchmark.warmUp(new Runnable() {
+            @Override
+            public void run() {
+                for (String query : QUERIES) {
+                    index.query(query, SearchIndex.MAX_RESULTS);
+                }
+            }
+        }, 20);
+        for (final String query : QUERIES) {
+            final long median = Benchmark.medianNanos(new Runnable() {
+                @Override
+                public void run() {
+                    index.query(query, SearchIndex.MAX_RESULTS);
+                }
+            }, 15);
+            assertTrue("Query '" + query + "' took " + median / 1000 + " microseconds", median < FRAME_NANOS);
+        }
+    }
+
+    private static String[] createVocabulary(Random random) {
+        // A few common words that many tasks share, plus a long tail of random ones.
+        final String[] common = {"call", "buy", "milk", "water", "report", "work", "meeting", "mom", "car", "book"};
+        final String[] vocabulary = new String[VOCABULARY_SIZE];
+        System.arraycopy(common, 0, vocabulary, 0, common.length);
+        for (int i = common.length; i < vocabulary.length; i++) {
+            final char[] word = new char[3 + random.nextInt(8)];
+            for (int j = 0; j < word.length; j++) {
+                word[j] = (char) ('a' + random.nextInt(26));
+            }
+            vocabulary[i] = new String(word);
+        }
+        return vocabulary;
+    }
+
+    private static String createText(Random random, String[] vocabulary, int minWords, int maxWords) {
+        final StringBuilder text = new StringBuilder();
+        final int words = minWords + random.nextInt(maxWords - minWords + 1);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            // Skewed towards the start of the vocabulary, like real word frequencies.
+            final double skew = random.nextDouble();
+            text.append(vocabulary[(int) (skew * skew * skew * vocabulary.length)]);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.realm.realmtasks.data;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TextIndexTest {
+
+    @Test
+    public void tokenizeSplitsOnNonLetters() {
+        assertArrayEquals(new String[] {"2", "buy", "eggs", "milk"}, TextIndex.tokenize("Buy milk, 2 eggs!"));
+    }
+
+    @Test
+    public void tokenizeSortsAndKeepsDuplicates() {
+        assertArrayEquals(new String[] {"a", "b", "b"}, TextIndex.tokenize("b a B"));
+    }
+
+    @Test
+    public void tokenizeEmpty() {
+        assertEquals(0, TextIndex.tokenize(null).length);
+        assertEquals(0, TextIndex.tokenize("").length);
+        assertEquals(0, TextIndex.tokenize(" .,- ").length);
+    }
+
+    @Test
+    public void tokenizeKeepsNonAsciiLetters() {
+        assertArrayEquals(new String[] {"caf\u00e9", "\u00fcber"}, TextIndex.tokenize("\u00dcber-Caf\u00e9"));
+    }
+
+    @Test
+    public void queryMatchesPrefixesOfAllTerms() {
+        final TextIndex index = new TextIndex();
+        index.add(TextIndex.KIND_TASK, "Buy milk", "list", "1", false);
+        index.add(TextIndex.KIND_TASK, "Buy bread", "list", "2", false);
+        index.add(TextIndex.KIND_TASK, "Milkshake", "list", "3", false);
+        assertTaskIds(index.query("bu mil", 10), "1");
+        assertTaskIds(index.query("milk", 10), "1", "3");
+        assertTaskIds(index.query("cheese", 10));
+        assertTaskIds(index.query(" ", 10));
+    }
+
+    @Test
+    public void exactWordsRankAbovePrefixes() {
+        final TextIndex index = new TextIndex();
+        index.add(TextIndex.KIND_TASK, "Milkshake", "list", "prefix", false);
+        index.add(TextIndex.KIND_TASK, "Get more milk please", "list", "exact", false);
+        assertTaskIds(index.query("milk", 10), "exact", "prefix");
+    }
+
+    @Test
+    public void openRanksAboveCompletedThenShorterFirst() {
+        final TextIndex index = new TextIndex();
+        index.add(TextIndex.KIND_TASK, "Call mom", "list", "completed", true);
+        index.add(TextIndex.KIND_TASK, "Call the bank", "list", "long", false);
+        index.add(TextIndex.KIND_TASK, "Call dad", "list", "short", false);
+        assertTaskIds(index.query("call", 10), "short", "long", "completed");
+    }
+
+    @Test
+    public void documentWithSeveralMatchingWordsIsReturnedOnce() {
+        final TextIndex index = new TextIndex();
+        index.add(TextIndex.KIND_TASK, "pack passport, pants and pens", "list", "1", false);
+        assertTaskIds(index.query("p", 10), "1");
+    }
+
+    @Test
+    public void queryKeepsTheBestResults() {
+        final TextIndex index = new TextIndex();
+        for (int i = 0; i < 20; i++) {
+            index.add(TextIndex.KIND_TASK, "water the plants " + i, "list", "open" + i, false);
+        }
+        index.add(TextIndex.KIND_TASK, "water", "list", "best", false);
+        final List<SearchIndex.Result> results = index.query("water", 5);
+        assertEquals(5, results.size());
+        assertEquals("best", results.get(0).getTaskId());
+    }
+
+    @Test
+    public void removedDocumentsNoLongerMatch() {
+        final TextIndex index = new TextIndex();
+        final int id = index.add(TextIndex.KIND_TASK, "Feed the cat", "list", "1", false);
+        index.add(TextIndex.KIND_TASK, "Feed the dog", "list", "2", false);
+        index.remove(id);
+        assertTaskIds(index.query("feed", 10), "2");
+        assertTaskIds(index.query("cat", 10));
+        assertEquals(1, index.size());
+        // Removing twice is harmless.
+        index.remove(id);
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void resultsCarryTheListTitle() {
+        final TextIndex index = new TextIndex();
+        index.add(TextIndex.KIND_LIST, "Groceries", "groceries", null, false);
+        index.add(TextIndex.KIND_TASK, "Apples", "groceries", "apples", false);
+        index.add(TextIndex.KIND_TASK, "Apricots", null, "apricots", false);
+
+        final List<SearchIndex.Result> lists = index.query("groc", 10);
+        assertEquals(1, lists.size());
+        assertTrue(lists.get(0).isList());
+        assertEquals("groceries", lists.get(0).getListId());
+
+        final List<SearchIndex.Result> tasks = index.query("ap", 10);
+        assertEquals(2, tasks.size());
+        assertFalse(tasks.get(0).isList());
+        assertEquals("Groceries", tasks.get(0).getListTitle());
+        assertNull(tasks.get(1).getListTitle());
+    }
+
+    @Test
+    public void clearRemovesEverything() {
+        final TextIndex index = new TextIndex();
+        index.add(TextIndex.KIND_LIST, "Work", "work", null, false);
+        index.add(TextIndex.KIND_TASK, "Write report", "work", "1", false);
+        index.clear();
+        assertEquals(0, index.size());
+        assertTaskIds(index.query("w", 10));
+    }
+
+    private static void assertTaskIds(List<SearchIndex.Result> results, String... taskIds) {
+        assertEquals(taskIds.length, results.size());
+        for (int i = 0; i < taskIds.length; i++) {
+            assertEquals(taskIds[i], results.get(i).getTaskId());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.list;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.realm.realmtasks.Benchmark;
+import io.realm.realmtasks.list.ItemViewHolder.ColorHelper;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that coloring a screen of rows doesn't depend on the length of the list, also when the number of rows changes
+ * on every frame. Only runs with {@code -Pbenchmark}, see {@link Benchmark}.
+ */
+public class GradientBenchmarkTest {
+
+    private static final int ROW_COUNT = 100000;
+    private static final int VISIBLE_ROWS = 20;
+    // A few array reads per row. Work proportional to the list length takes milliseconds at this size.
+    private static final long LIMIT_NANOS = 50000L;
+
+    private final ColorHelper.Gradient gradient = new ColorHelper.Gradient(ColorHelper.taskColors);
+    private int size = ROW_COUNT;
+    private int sum;
+
+    @Before
+    public void setUp() {
+        Benchmark.assumeEnabled();
+    }
+
+    @Test
+    public void countChangeStaysConstant() {
+        final Runnable frame = new Runnable() {
+            @Override
+            public void run() {
+                // A row was added or removed since the last frame.
+                size = size == ROW_COUNT ? ROW_COUNT + 1 : ROW_COUNT;
+                for (int i = 0; i < VISIBLE_ROWS; i++) {
+                    sum += gradient.getColor(size / 2 + i, size);
+                }
+            }
+        };
+        Benchmark.warmUp(frame, 1000);
+        final long median = Benchmark.medianNanos(frame, 101);
+        assertTrue("Coloring a screen took " + median / 1000 + " microseconds (" + sum + ")", median < LIMIT_NANOS);
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.realm.realmtasks.list;
+
+import org.junit.Test;
+
+import io.realm.realmtasks.list.ItemViewHolder.ColorHelper;
+
+import static org.junit.Assert.assertEquals;
+
+public class GradientTest {
+
+    @Test
+    public void matchesColorHelper() {
+        for (int[] palette : new int[][] {ColorHelper.taskColors, ColorHelper.listColors}) {
+            final ColorHelper.Gradient gradient = new ColorHelper.Gradient(palette);
+            for (int size = 0; size < 200; size++) {
+                for (int index = -1; index <= size + 1; index++) {
+                    assertEquals("index " + index + " of " + size,
+                            ColorHelper.getColor(palette, index, size), gradient.getColor(index, size));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void followsSizeChanges() {
+        final ColorHelper.Gradient gradient = new ColorHelper.Gradient(ColorHelper.taskColors);
+        final int[] sizes = {20, 5, 20, 100, 0, 13, 14};
+        for (int size : sizes) {
+            assertEquals(ColorHelper.getColor(ColorHelper.taskColors, size / 2, size), gradient.getColor(size / 2, size));
+        }
+    }
+
+    @Test
+    public void startsAtFirstColor() {
+        final ColorHelper.Gradient gradient = new ColorHelper.Gradient(ColorHelper.listColors);
+        assertEquals(ColorHelper.listColors[0], gradient.getColor(0, 50));
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.list;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import io.realm.RealmList;
+import io.realm.RealmModel;
+import io.realm.realmtasks.Benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares completing the top row of a long list, which moves it to the end, with the chain of swaps the adapters
+ * used before. Only runs with {@code -Pbenchmark}, see {@link Benchmark}. The lists are unmanaged, so this measures
+ * the number of list mutations and their cost on the JVM; on a managed list each mutation is also a write and a sync
+ * instruction.
+ */
+public class MoveItemsBenchmarkTest {
+
+    private static final int ROW_COUNT = 5000;
+
+    private static class Item implements RealmModel {
+    }
+
+    private static class CountingList extends RealmList<Item> {
+
+        int mutations;
+
+        @Override
+        public Item set(int location, Item object) {
+            mutations++;
+            return super.set(location, object);
+        }
+
+        @Override
+        public void move(int oldPos, int newPos) {
+            mutations++;
+            super.move(oldPos, newPos);
+        }
+    }
+
+    private Item[] rows;
+
+    @Before
+    public void setUp() {
+        Benchmark.assumeEnabled();
+        rows = new Item[ROW_COUNT];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new Item();
+        }
+    }
+
+    @Test
+    public void moveIsOneMutation() {
+        final CountingList moved = createList();
+        final CountingList swapped = createList();
+        CommonAdapter.moveItems(moved, 0, ROW_COUNT - 1);
+        swapItems(swapped, 0, ROW_COUNT - 1);
+        for (int i = 0; i < ROW_COUNT; i++) {
+            assertSame("row " + i, swapped.get(i), moved.get(i));
+        }
+        assertEquals(1, moved.mutations);
+        assertEquals(2 * (ROW_COUNT - 1), swapped.mutations);
+    }
+
+    @Test
+    public void moveIsFasterThanSwapping() {
+        final CountingList moved = createList();
+        final CountingList swapped = createList();
+        final Runnable move = new Runnable() {
+            @Override
+            public void run() {
+                CommonAdapter.moveItems(moved, 0, ROW_COUNT - 1);
+            }
+        };
+        final Runnable swap = new Runnable() {
+            @Override
+            public void run() {
+                swapItems(swapped, 0, ROW_COUNT - 1);
+            }
+        };
+        Benchmark.warmUp(move, 200);
+        Benchmark.warmUp(swap, 200);
+        final long moveMedian = Benchmark.medianNanos(move, 51);
+        final long swapMedian = Benchmark.medianNanos(swap, 51);
+        assertTrue("Moving took " + moveMedian / 1000 + " microseconds, swapping " + swapMedian / 1000,
+                moveMedian < swapMedian);
+    }
+
+    private CountingList createList() {
+        final CountingList list = new CountingList();
+        Collections.addAll(list, rows);
+        list.mutations = 0;
+        return list;
+    }
+
+    /**
+     * What moveItems() did before: one swap, that is two mutations, per position between the two.
+     */
+    private static void swapItems(RealmList<Item> items, int fromPosition, int toPosition) {
+        if (fromPosition < toPosition) {
+            for (int i = fromPosition; i < toPosition; i++) {
+                Collections.swap(items, i, i + 1);
+            }
+        } else {
+            for (int i = fromPosition; i > toPosition; i--) {
+                Collections.swap(items, i, i - 1);
+            }
+        }
+    }
+}
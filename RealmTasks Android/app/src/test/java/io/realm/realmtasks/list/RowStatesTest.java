@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.realm.realmtasks.list;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class RowStatesTest {
+
+    @Test
+    public void firstRowWithKeyUsesKeyAsId() {
+        final RowStates rowStates = new RowStates(0);
+        rowStates.add(42, 0);
+        assertEquals(42, rowStates.getId(0));
+    }
+
+    @Test
+    public void duplicateKeysGetUniqueIds() {
+        final RowStates rowStates = new RowStates(0);
+        rowStates.add(7, 0);
+        rowStates.add(7, 0);
+        rowStates.add(7, 0);
+        assertEquals(7, rowStates.getKey(1));
+        assertNotEquals(rowStates.getId(0), rowStates.getId(1));
+        assertNotEquals(rowStates.getId(0), rowStates.getId(2));
+        assertNotEquals(rowStates.getId(1), rowStates.getId(2));
+    }
+
+    @Test
+    public void moveKeepsId() {
+        final RowStates rowStates = new RowStates(0);
+        rowStates.add(1, 0);
+        rowStates.add(1, 0);
+        rowStates.add(2, 0);
+        final long id = rowStates.getId(1);
+        rowStates.move(1, 2);
+        assertEquals(id, rowStates.getId(2));
+        assertEquals(2, rowStates.getKey(1));
+    }
+
+    @Test
+    public void removeFreesId() {
+        final RowStates rowStates = new RowStates(0);
+        rowStates.add(5, 0);
+        rowStates.remove(0, 1);
+        rowStates.add(5, 0);
+        assertEquals(5, rowStates.getId(0));
+    }
+
+    @Test
+    public void setKeyKeepsIdOfUnchangedKey() {
+        final RowStates rowStates = new RowStates(0);
+        rowStates.add(3, 0);
+        rowStates.add(3, 0);
+        final long id = rowStates.getId(1);
+        rowStates.setKey(1, 3);
+        assertEquals(id, rowStates.getId(1));
+        rowStates.setKey(1, 4);
+        assertEquals(4, rowStates.getId(1));
+    }
+
+    @Test
+    public void copyAllocatesIndependently() {
+        final RowStates rowStates = new RowStates(0);
+        rowStates.add(9, 0);
+        final RowStates copy = new RowStates(rowStates);
+        copy.add(9, 0);
+        rowStates.remove(0, 1);
+        assertNotEquals(copy.getId(0), copy.getId(1));
+        rowStates.add(9, 0);
+        assertEquals(9, rowStates.getId(0));
+    }
+
+    @Test
+    public void growsBeyondCapacity() {
+        final RowStates rowStates = new RowStates(0);
+        for (int i = 0; i < 100; i++) {
+            rowStates.insert(0, i, i);
+        }
+        assertEquals(100, rowStates.size());
+        assertEquals(0, rowStates.getKey(99));
+        assertEquals(99, rowStates.getHash(0));
+    }
+}
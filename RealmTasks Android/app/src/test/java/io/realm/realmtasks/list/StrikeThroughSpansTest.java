@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm.realmtasks.list;
+
+import android.text.Spannable;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StrikeThroughSpansTest {
+
+    private static final String TEXT = "Buy milk and water";
+
+    private final Object strikethroughSpan = new Object();
+    private final Object completedColorSpan = new Object();
+    private final Object defaultColorSpan = new Object();
+    private final StrikeThroughSpans spans =
+            new StrikeThroughSpans(strikethroughSpan, completedColorSpan, defaultColorSpan);
+
+    @Test
+    public void strikesThroughFromTheStart() {
+        final FakeSpannable spannable = new FakeSpannable(TEXT);
+        spans.apply(spannable, 5, false);
+        assertEquals(0, spannable.getSpanStart(strikethroughSpan));
+        assertEquals(5, spannable.getSpanEnd(strikethroughSpan));
+        assertEquals(5, spannable.getSpanStart(defaultColorSpan));
+        assertEquals(TEXT.length(), spannable.getSpanEnd(defaultColorSpan));
+        assertEquals(-1, spannable.getSpanStart(completedColorSpan));
+    }
+
+    @Test
+    public void unStrikesCompletedFromTheStart() {
+        final FakeSpannable spannable = new FakeSpannable(TEXT);
+        spans.apply(spannable, TEXT.length(), true);
+        assertEquals(0, spannable.getSpanStart(completedColorSpan));
+        assertEquals(TEXT.length(), spannable.getSpanEnd(completedColorSpan));
+        // Exclusive spans can't be empty.
+        assertEquals(-1, spannable.getSpanStart(strikethroughSpan));
+    }
+
+    @Test
+    public void removeClearsAllSpans() {
+        final FakeSpannable spannable = new FakeSpannable(TEXT);
+        spans.apply(spannable, 5, false);
+        spans.remove(spannable);
+        assertEquals(-1, spannable.getSpanStart(strikethroughSpan));
+        assertEquals(-1, spannable.getSpanStart(defaultColorSpan));
+    }
+
+    @Test
+    public void lastCharacterGoesWithThePreviousOne() {
+        assertEquals(0, StrikeThroughSpans.getFirstLength(10, 0f));
+        assertEquals(5, StrikeThroughSpans.getFirstLength(10, 0.5f));
+        assertEquals(10, StrikeThroughSpans.getFirstLength(10, 0.9f));
+        assertEquals(10, StrikeThroughSpans.getFirstLength(10, 1f));
+        assertEquals(0, StrikeThroughSpans.getFirstLength(0, 0.5f));
+    }
+
+    @Test
+    public void swipeDoesNotAllocate() {
+        final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+        final long threadId = Thread.currentThread().getId();
+        final FakeSpannable spannable = new FakeSpannable(TEXT);
+        swipe(spannable, 1000);
+
+        final long start = allocationBean.getThreadAllocatedBytes(threadId);
+        final int frames = swipe(spannable, 1000);
+        final long allocated = allocationBean.getThreadAllocatedBytes(threadId) - start;
+        // The JVM itself can allocate a few bytes now and then. Any allocation per frame is at least one object.
+        assertTrue("Allocated " + allocated + " bytes in " + frames + " frames", allocated < frames);
+    }
+
+    /**
+     * Does the per-frame work of {@link ItemViewHolder#setStrikeThroughRatio(float)} for {@code count} swipes in both
+     * directions and returns the number of frames.
+     */
+    private int swipe(Spannable spannable, int count) {
+        int frames = 0;
+        for (int i = 0; i < count; i++) {
+            final boolean completed = i % 2 == 0;
+            for (int frame = 0; frame <= 60; frame++) {
+                final int firstLength = StrikeThroughSpans.getFirstLength(spannable.length(), frame / 60f);
+                spans.apply(spannable, firstLength, completed);
+                frames++;
+            }
+            spans.remove(spannable);
+        }
+        return frames;
+    }
+
+    /**
+     * Keeps up to three spans in fixed slots, so that the spannable itself doesn't allocate.
+     */
+    private static class FakeSpannable implements Spannable {
+
+        private final String text;
+        private final Object[] spans = new Object[3];
+        private final int[] starts = new int[3];
+        private final int[] ends = new int[3];
+        private final int[] flags = new int[3];
+
+        FakeSpannable(String text) {
+            this.text = text;
+        }
+
+        private int indexOf(Object span) {
+            for (int i = 0; i < spans.length; i++) {
+                if (spans[i] == span) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public void setSpan(Object what, int start, int end, int flags) {
+            int index = indexOf(what);
+            if (index == -1) {
+                index = indexOf(null);
+            }
+            spans[index] = what;
+            starts[index] = start;
+            ends[index] = end;
+            this.flags[index] = flags;
+        }
+
+        @Override
+        public void removeSpan(Object what) {
+            final int index = indexOf(what);
+            if (index != -1) {
+                spans[index] = null;
+            }
+        }
+
+        @Override
+        public <T> T[] getSpans(int start, int end, Class<T> type) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getSpanStart(Object tag) {
+            final int index = indexOf(tag);
+            return index != -1 ? starts[index] : -1;
+        }
+
+        @Override
+        public int getSpanEnd(Object tag) {
+            final int index = indexOf(tag);
+            return index != -1 ? ends[index] : -1;
+        }
+
+        @Override
+        public int getSpanFlags(Object tag) {
+            final int index = indexOf(tag);
+            return index != -1 ? flags[index] : 0;
+        }
+
+        @Override
+        public int nextSpanTransition(int start, int limit, Class type) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return text.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return text.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.realm.realmtasks.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    // Far above every value below, so that it never clamps the bucket bound of the value under test.
+    private static final long LARGE = 1L << 39;
+
+    @Test
+    public void emptyReturnsZero() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(0, histogram.getMean(), 0);
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        for (long value = 0; value < 16; value++) {
+            final LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(value);
+            histogram.record(LARGE);
+            assertEquals(value, histogram.getValueAtPercentile(50));
+        }
+    }
+
+    @Test
+    public void bucketBoundStaysWithinRelativeError() {
+        for (long value = 16; value < LARGE; value += Math.max(1, value / 7)) {
+            final LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(value);
+            histogram.record(LARGE);
+            final long bound = histogram.getValueAtPercentile(50);
+            assertTrue("bound " + bound + " below " + value, bound >= value);
+            assertTrue("bound " + bound + " too far above " + value, bound - value < value / 16 + 1);
+        }
+    }
+
+    @Test
+    public void bucketsAreContiguous() {
+        // The upper bound of the bucket of a value plus one is in the next bucket.
+        long value = 16;
+        while (value < LARGE) {
+            final LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(value);
+            histogram.record(LARGE);
+            final long bound = histogram.getValueAtPercentile(50);
+            final LatencyHistogram next = new LatencyHistogram();
+            next.record(bound + 1);
+            next.record(LARGE);
+            assertTrue(next.getValueAtPercentile(50) > bound);
+            value = bound + 1;
+        }
+    }
+
+    @Test
+    public void percentilesOfExactValues() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10; value++) {
+            histogram.record(value);
+        }
+        assertEquals(1, histogram.getValueAtPercentile(0));
+        assertEquals(5, histogram.getValueAtPercentile(50));
+        assertEquals(9, histogram.getValueAtPercentile(90));
+        assertEquals(10, histogram.getValueAtPercentile(100));
+        assertEquals(5.5, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    public void percentileNeverExceedsMax() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        assertEquals(1000, histogram.getValueAtPercentile(100));
+        assertEquals(1000, histogram.getMax());
+    }
+
+    @Test
+    public void valuesAboveRangeAreClamped() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1L << 41);
+        assertEquals(1L << 41, histogram.getValueAtPercentile(50));
+        // Both share the last bucket, which is only bounded by the largest value.
+        histogram.record(Long.MAX_VALUE / 2);
+        assertEquals(2, histogram.getCount());
+        assertEquals(Long.MAX_VALUE / 2, histogram.getValueAtPercentile(50));
+        assertEquals(Long.MAX_VALUE / 2, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void negativeValuesCountAsZero() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(0, histogram.getValueAtPercentile(100));
+        assertEquals(1, histogram.getCount());
+    }
+
+    @Test
+    public void resetForgetsValues() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(42);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+}